@@ -0,0 +1,98 @@
+package com.securitydemo.Benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securitydemo.Dto.AuditEvent;
+import com.securitydemo.Service.AuditLog;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Time a request thread spends recording one audit event, with 4 request threads publishing back to back:
+ * - record: AuditLog, publish into the ring buffer; the writer thread batches and fsyncs on its own
+ * - writeAndSync: the naive way, serialize, append and fsync on the request thread under a lock
+ * The threads publish far faster than any disk takes events, so the ring stays full: with whenFull=DROP most
+ * events are dropped (counts logged once per trial), with BLOCK record runs at the writer's pace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AuditLogBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogBenchmark.class);
+
+    @Param({ "DROP", "BLOCK" })
+    public AuditLog.WhenFull whenFull;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path dir;
+    private AuditLog audit;
+    private FileChannel file;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        dir = Files.createTempDirectory("audit-bench");
+        audit = new AuditLog(registry, dir.resolve("ring").toString(), 65536, whenFull, 50, 64, 60, 0);
+        file = FileChannel.open(dir.resolve("sync.ndjson"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        audit.destroy();
+        file.close();
+        log.info("Written {}, dropped {}", (long) registry.counter("audit.events.written").count(),
+                (long) registry.counter("audit.events.dropped").count());
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        audit.login("bench@example.com", "10.0.0.1", null);
+    }
+
+    @Benchmark
+    public void writeAndSync() throws IOException {
+        AuditEvent event = new AuditEvent(System.currentTimeMillis(), AuditEvent.Type.LOGIN_SUCCEEDED,
+                "bench@example.com", null, "10.0.0.1", null);
+        byte[] line = (objectMapper.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            file.write(ByteBuffer.wrap(line));
+            file.force(false);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.securitydemo.Benchmark;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import com.securitydemo.Entity.MyUserPrincipal;
+import com.securitydemo.Entity.Users;
+import com.securitydemo.Service.JWTService;
+
+/**
+ * Per-request building blocks of authentication, one benchmark per public entry point.
+ * Run with -prof gc (the default jmh.args) to see allocation per operation next to ns/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthHotPathBenchmark {
+
+    private JWTService jwtService;
+    private MyUserPrincipal principal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JWTService();
+
+        Users user = new Users();
+        user.setEmail("bench@example.com");
+        user.setPassword("unused");
+        user.setRole("USER,ADMIN");
+        principal = new MyUserPrincipal(user);
+
+        token = jwtService.generateToken(user.getEmail());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(principal.getUsername());
+    }
+
+    @Benchmark
+    public String extractEmail() {
+        return jwtService.extractEmail(token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtService.validateToken(token, principal);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return principal.getAuthorities();
+    }
+}
@@ -0,0 +1,143 @@
+package com.securitydemo.Benchmark;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.securitydemo.Config.JwtFilter;
+import com.securitydemo.Entity.MyUserPrincipal;
+import com.securitydemo.Entity.Users;
+import com.securitydemo.Repository.UserRepository;
+import com.securitydemo.Service.AuditLog;
+import com.securitydemo.Service.AuthMetrics;
+import com.securitydemo.Service.JWTService;
+import com.securitydemo.Service.MyUserDetailsService;
+import com.securitydemo.Service.ReadYourWrites;
+import com.securitydemo.Service.TokenRevocationList;
+import com.securitydemo.Service.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import jakarta.servlet.FilterChain;
+
+/**
+ * Requests per second through JwtFilter for an already seen bearer token.
+ * - mode=database: the user is loaded through MyUserDetailsService on every request (principal cache disabled),
+ *   with the repository answering after dbLatencyMicros to stand in for a MySQL round trip.
+ * - mode=stateless: authorities come from the token claims and the repository is never called.
+ * - metrics=off: meters are no-ops; metrics=prometheus: phase timers record into histograms as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    @Param({ "database", "stateless" })
+    public String mode;
+
+    @Param({ "0", "250" })
+    public long dbLatencyMicros;
+
+    @Param({ "off", "prometheus" })
+    public String metrics;
+
+    private JwtFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        Users user = new Users();
+        user.setEmail("bench@example.com");
+        user.setPassword("unused");
+        user.setRole("USER");
+
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.findByEmail(anyString())).thenAnswer(invocation -> {
+            if (dbLatencyMicros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbLatencyMicros));
+            }
+            return user;
+        });
+
+        MyUserDetailsService userDetailsService = new MyUserDetailsService(0, 0); // Every lookup reaches the repository
+        ReflectionTestUtils.setField(userDetailsService, "userrepo", repository);
+        ReflectionTestUtils.setField(userDetailsService, "readYourWrites", new ReadYourWrites(5));
+
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("myUserDetailsService", userDetailsService);
+        context.refresh();
+
+        JWTService jwtService = new JWTService();
+        jwtService.setStateless("stateless".equals(mode));
+
+        filter = new JwtFilter();
+        ReflectionTestUtils.setField(filter, "jwtservice", jwtService);
+        ReflectionTestUtils.setField(filter, "tokenCache", new VerifiedTokenCache(jwtService, 10_000, 300));
+        ReflectionTestUtils.setField(filter, "context", context);
+        ReflectionTestUtils.setField(filter, "metrics", new AuthMetrics(meterRegistry()));
+        ReflectionTestUtils.setField(filter, "revocations", new TokenRevocationList("", 100_000, jwtService));
+        ReflectionTestUtils.setField(filter, "audit", new AuditLog(meterRegistry(), "", 1024, AuditLog.WhenFull.DROP, 50, 64, 60, 0));
+
+        request = new MockHttpServletRequest("GET", "/users/");
+        request.addHeader("Authorization", "Bearer " + jwtService.generateToken(new MyUserPrincipal(user)));
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object authenticatedRequest() throws Exception {
+        filter.doFilter(request, response, chain);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private MeterRegistry meterRegistry() {
+        if ("off".equals(metrics)) {
+            return new CompositeMeterRegistry(); // No child registries: every meter is a no-op
+        }
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder() // Same buckets as application.yml
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) TimeUnit.MICROSECONDS.toNanos(1))
+                        .maximumExpectedValue((double) TimeUnit.MILLISECONDS.toNanos(100))
+                        .build()
+                        .merge(config);
+            }
+        });
+        return registry;
+    }
+}
@@ -0,0 +1,55 @@
+package com.securitydemo.Benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.securitydemo.Service.JWTService;
+import com.securitydemo.Service.SigningKeyRing;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Cost of issuing (login, refresh) and verifying (every request without a cached verification)
+ * an access token, per jwt.keys.algorithm. Keys are in memory, as after the key file has been read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({ "HS256", "ES256", "EdDSA" })
+    public String algorithm;
+
+    private JWTService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JWTService(new SigningKeyRing("", 24, 24, algorithm));
+        token = jwtService.generateToken("bench@example.com");
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtService.generateToken("bench@example.com");
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return jwtService.parseClaims(token);
+    }
+}
@@ -0,0 +1,73 @@
+package com.securitydemo.Benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.securitydemo.Entity.MyUserPrincipal;
+import com.securitydemo.Entity.Users;
+import com.securitydemo.Service.JWTService;
+import com.securitydemo.Service.VerifiedTokenCache;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Compares the per-request token checks done by JwtFilter:
+ * - legacyTriplePath: extractEmail + validateToken(String, ...) = three signature checks and parses
+ * - verifyOnce: a single parseClaims call
+ * - cachedVerify: lookup in VerifiedTokenCache for a token that was seen before
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private JWTService jwtService;
+    private VerifiedTokenCache tokenCache;
+    private MyUserPrincipal principal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JWTService();
+        tokenCache = new VerifiedTokenCache(jwtService, 10_000, 300);
+
+        Users user = new Users();
+        user.setEmail("bench@example.com");
+        user.setPassword("unused");
+        principal = new MyUserPrincipal(user);
+
+        token = jwtService.generateToken(user.getEmail());
+        tokenCache.verify(token); // Prime the cache
+    }
+
+    @Benchmark
+    public boolean legacyTriplePath() {
+        String email = jwtService.extractEmail(token);
+        return email != null && jwtService.validateToken(token, principal);
+    }
+
+    @Benchmark
+    public boolean verifyOnce() {
+        Claims claims = jwtService.parseClaims(token);
+        return jwtService.validateToken(claims, principal);
+    }
+
+    @Benchmark
+    public boolean cachedVerify() {
+        Claims claims = tokenCache.verify(token);
+        return jwtService.validateToken(claims, principal);
+    }
+}
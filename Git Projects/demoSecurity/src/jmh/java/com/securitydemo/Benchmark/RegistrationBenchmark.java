@@ -0,0 +1,82 @@
+package com.securitydemo.Benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.securitydemo.DemoApplication;
+import com.securitydemo.Entity.Users;
+import com.securitydemo.Repository.UserRepository;
+
+/**
+ * Registrations per second through UserRepository.save against a real database
+ * (the datasource of application.yml; override with -Djmh.args="... -jvmArgsAppend -Dspring.datasource.url=...").
+ * The password is pre-hashed so only the insert path is measured.
+ * - path=merge: the old behaviour, save() treats the row as existing and issues SELECT + INSERT
+ * - path=insert: Users is Persistable and new, save() issues a single INSERT
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrationBenchmark {
+
+    private static final String PREFIX = "bench-registration-";
+    private static final String HASH = "$2a$10$7EqJtq98hPqEX7fNZaFWoOa4BCmC7FqYkYdQbO0uzYzYcWQzCCKWa";
+
+    @Param({ "merge", "insert" })
+    public String path;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.jpa.show-sql=false");
+        userRepository = context.getBean(UserRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        deleteBenchmarkRows();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        deleteBenchmarkRows();
+        context.close();
+    }
+
+    @Benchmark
+    public Users register() {
+        Users user = new Users("bench", PREFIX + sequence.incrementAndGet() + "@example.com", HASH, "USER", null, null);
+        if ("merge".equals(path)) {
+            user.markNotNew();
+        }
+        return userRepository.save(user);
+    }
+
+    private void deleteBenchmarkRows() {
+        jdbcTemplate.update("delete from user where email like ?", PREFIX + "%");
+    }
+}
@@ -0,0 +1,92 @@
+package com.securitydemo.Benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.securitydemo.DemoApplication;
+import com.securitydemo.Entity.Users;
+import com.securitydemo.Repository.UserRepository;
+
+/**
+ * UserRepository finders against the "perf" profile's embedded database seeded with `rows` users.
+ * - schema=migrations: Flyway creates the schema and Hibernate validates it (with the user_name index)
+ * - schema=ddl-update: the old setup, Hibernate creates the schema and no user_name index exists
+ * Startup time (context refresh, before seeding) is logged once per trial.
+ * Excluded from the default run, as seeding a million rows takes a while:
+ * -Djmh.args="UserFinder -prof gc -rf json -rff target/jmh-result.json"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserFinderBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(UserFinderBenchmark.class);
+
+    @Param({ "1000000" })
+    public int rows;
+
+    @Param({ "ddl-update", "migrations" })
+    public String schema;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        long start = System.nanoTime();
+        ApplicationListener<ApplicationStartedEvent> started = event -> log.info(
+                "Startup ({}): {} ms", schema, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("perf")
+                .listeners(started);
+        if ("ddl-update".equals(schema)) {
+            context = builder.run("--perf.seed.count=" + rows, "--spring.flyway.enabled=false",
+                    "--spring.jpa.hibernate.ddl-auto=update", "--spring.jpa.generate-ddl=true");
+            context.getBean(JdbcTemplate.class).execute("drop index if exists idx_user_user_name"); // Not in the old schema
+        } else {
+            context = builder.run("--perf.seed.count=" + rows);
+        }
+        userRepository = context.getBean(UserRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Users findByUsername() {
+        return userRepository.findByUsername("user" + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public Users findByEmail() {
+        return userRepository.findByEmail("user" + ThreadLocalRandom.current().nextInt(rows) + "@perf.local");
+    }
+}
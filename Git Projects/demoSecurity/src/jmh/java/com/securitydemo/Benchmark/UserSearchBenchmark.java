@@ -0,0 +1,93 @@
+package com.securitydemo.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Dto.UserSearchResult;
+import com.securitydemo.Service.UserSearchIndex;
+
+/**
+ * GET /users/search over `rows` users shaped like the perf profile's seed data, against the alternative
+ * it replaces: a client filtering the findAll result (here already in memory, so without the query and transfer).
+ * - user12345: selective, a dozen matches
+ * - 4242 main: substring across words of address1
+ * - ap: two-character word prefix, matches every user (truncated at users.search.max-candidates)
+ * Load time and heap used by the index are logged once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserSearchBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchBenchmark.class);
+
+    @Param({ "1000000" })
+    public int rows;
+
+    @Param({ "user12345", "4242 main", "ap" })
+    public String query;
+
+    private UserSearchIndex index;
+    private List<UserResponse> users;
+
+    @Setup(Level.Trial)
+    public void load() {
+        users = new ArrayList<>(rows);
+        IntStream.range(0, rows).forEach(i ->
+                users.add(new UserResponse("user" + i, "user" + i + "@perf.local", "USER", i + " Main Street", "Apt " + i, 0L)));
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        index = new UserSearchIndex(null, true, 100, 10000);
+        index.load(users.stream());
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        log.info("Index of {} users: loaded in {} ms, {} MB of heap", rows, millis, (heapAfter - heapBefore) / (1024 * 1024));
+    }
+
+    @Benchmark
+    public UserSearchResult search() {
+        return index.search(query, 20);
+    }
+
+    @Benchmark
+    public List<UserResponse> filterAll() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<UserResponse> found = new ArrayList<>();
+        for (UserResponse user : users) {
+            if (contains(user.username(), needle) || contains(user.email(), needle)
+                    || contains(user.address1(), needle) || contains(user.address2(), needle)) {
+                found.add(user);
+            }
+        }
+        return found.size() > 20 ? found.subList(0, 20) : found;
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+}
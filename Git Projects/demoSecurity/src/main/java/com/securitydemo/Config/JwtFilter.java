@@ -1,18 +1,31 @@
 package com.securitydemo.Config;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.securitydemo.Entity.MyUserPrincipal;
+import com.securitydemo.Service.AuditLog;
+import com.securitydemo.Service.AuthMetrics;
+import com.securitydemo.Service.AuthMetrics.Phase;
+import com.securitydemo.Service.AuthMetrics.Rejection;
 import com.securitydemo.Service.JWTService;
 import com.securitydemo.Service.MyUserDetailsService;
+import com.securitydemo.Service.TokenRevocationList;
+import com.securitydemo.Service.VerifiedTokenCache;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -32,58 +45,138 @@ public class JwtFilter extends OncePerRequestFilter {
     @Autowired
     private JWTService jwtservice;
 
+    // Cache of already verified tokens, so repeat requests with the same token skip signature checks
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
     // Inject ApplicationContext to get beans dynamically (like MyUserDetailsService)
     @Autowired
     private ApplicationContext context;
 
+    // Revoked token ids and per-user cutoffs, checked in memory
+    @Autowired
+    private TokenRevocationList revocations;
+
+    // Per-phase timers and rejection counters
+    @Autowired
+    private AuthMetrics metrics;
+
+    // Every rejected token is also recorded in the audit log (published to a buffer, written off the request thread)
+    @Autowired
+    private AuditLog audit;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                     HttpServletResponse response, 
                                     FilterChain filterChain)
             throws ServletException, IOException {
 
+        long phaseStart = System.nanoTime();
+
         // Get Authorization header from incoming HTTP request
         String authHeader = request.getHeader("Authorization");
 
-        String token = null;
+        Claims claims = null;
         String email = null;
 
         //   Check if Authorization header is present and starts with "Bearer "
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             // 3️⃣ Remove "Bearer " part and extract only the token
-            token = authHeader.substring(7);
-
-            //   Extract email (username) from the token
-            email = jwtservice.extractEmail(token);
+            String token = authHeader.substring(7);
+            phaseStart = record(Phase.PARSE, phaseStart);
+
+            //   Verify the token once and keep the parsed claims for the checks below
+            try {
+                claims = tokenCache.verify(token);
+            } catch (JwtException e) {
+                Rejection reason = AuthMetrics.reasonOf(e);
+                metrics.rejected(reason);
+                // An expired token still names its user; for the others the claims cannot be trusted
+                audit.tokenRejected(reason, e instanceof ExpiredJwtException expired ? expired.getClaims().getSubject() : null,
+                        request.getRemoteAddr());
+                throw e;
+            } finally {
+                phaseStart = record(Phase.VERIFY, phaseStart);
+            }
+            // Revoked tokens (logout, deleted user, changed password) authenticate nothing
+            if (revocations.isRevoked(claims)) {
+                metrics.rejected(Rejection.REVOKED);
+                audit.tokenRejected(Rejection.REVOKED, claims.getSubject(), request.getRemoteAddr());
+            } else {
+                email = claims.getSubject();
+            }
         }
 
         //  If email is extracted and no authentication is set yet
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            // Load user details (like username, password, roles) from database using email
-            UserDetails userDetails = 
-                    context.getBean(MyUserDetailsService.class).loadUserByUsername(email);
-
-            //  Validate the token by checking if it matches the user details
-            if (jwtservice.validateToken(token, userDetails)) {
-
-                //   If valid, create a UsernamePasswordAuthenticationToken
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, 
-                                null,
-                                userDetails.getAuthorities() // roles/authorities
-                        );
+            UsernamePasswordAuthenticationToken authToken = null;
+
+            // Stateless mode: the verified token already carries the authorities, so skip the user lookup
+            List<GrantedAuthority> authorities = jwtservice.isStateless() ? jwtservice.extractAuthorities(claims) : null;
+            if (authorities != null) {
+                boolean current = stampMatches(email, claims);
+                phaseStart = record(Phase.USER_LOAD, phaseStart);
+                if (current) {
+                    authToken = new UsernamePasswordAuthenticationToken(email, null, authorities);
+                }
+            } else {
+                // Load user details (like username, password, roles) from database using email
+                UserDetails userDetails;
+                try {
+                    userDetails = context.getBean(MyUserDetailsService.class).loadUserByUsername(email);
+                } catch (RuntimeException e) {
+                    Rejection reason = AuthMetrics.reasonOf(e);
+                    metrics.rejected(reason);
+                    audit.tokenRejected(reason, email, request.getRemoteAddr());
+                    throw e;
+                } finally {
+                    phaseStart = record(Phase.USER_LOAD, phaseStart);
+                }
+
+                //  Validate the token by checking if it matches the user details
+                if (jwtservice.validateToken(claims, userDetails)) {
+
+                    //   If valid, create a UsernamePasswordAuthenticationToken
+                    authToken = new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            null,
+                            userDetails.getAuthorities() // roles/authorities
+                    );
+                }
+            }
 
+            if (authToken != null) {
                 //  Attach additional authentication details from HTTP request
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 // 🔟 Set the authentication into the SecurityContext
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                record(Phase.CONTEXT, phaseStart);
+            } else {
+                metrics.rejected(Rejection.STALE); // Valid signature, but the token no longer matches the user
+                audit.tokenRejected(Rejection.STALE, email, request.getRemoteAddr());
             }
         }
 
         // 🔥 Continue filter chain after processing authentication
         filterChain.doFilter(request, response);
     }
+
+    // Records the time since phaseStart and returns the start of the next phase
+    private long record(Phase phase, long phaseStart) {
+        long now = System.nanoTime();
+        metrics.record(phase, now - phaseStart);
+        return now;
+    }
+
+    /**
+     * In stateless mode the token is trusted until it expires. If this node happens to have the
+     * user cached, the stamp in the token is compared with the current one so that password or
+     * role changes made here cut off older tokens without a database query.
+     */
+    private boolean stampMatches(String email, Claims claims) {
+        MyUserPrincipal cached = context.getBean(MyUserDetailsService.class).getCachedPrincipal(email);
+        return cached == null || cached.getSecurityStamp().equals(claims.get(JWTService.STAMP_CLAIM));
+    }
 }
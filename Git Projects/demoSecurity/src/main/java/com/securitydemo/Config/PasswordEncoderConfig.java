@@ -0,0 +1,66 @@
+package com.securitydemo.Config;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Provides the single PasswordEncoder shared by registration and login.
+ *
+ * The BCrypt cost is calibrated once at startup so that one hash takes about
+ * auth.password.target-hash-millis on this machine (each cost step doubles the time), but never
+ * below auth.password.min-strength, 12 by default, the fixed cost used before calibration.
+ * Stored hashes with a lower cost are upgraded on the next successful login
+ * (see MyUserDetailsService.updatePassword). Hash and check times are recorded as auth.password.hash.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample";
+
+    @Value("${auth.password.strength:0}")
+    private int fixedStrength; // > 0 skips calibration
+
+    @Value("${auth.password.target-hash-millis:250}")
+    private long targetHashMillis;
+
+    @Value("${auth.password.min-strength:12}")
+    private int minStrength;
+
+    @Value("${auth.password.max-strength:14}")
+    private int maxStrength;
+
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry registry) {
+        int strength = fixedStrength > 0 ? fixedStrength : calibrate();
+        log.info("Using BCrypt strength {}", strength);
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(strength), registry);
+    }
+
+    // Measures the cheapest allowed cost and extrapolates to the target latency
+    private int calibrate() {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode(SAMPLE_PASSWORD); // Warm up
+        long[] samples = new long[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            probe.encode(SAMPLE_PASSWORD);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double medianMillis = Math.max(samples[1] / 1_000_000.0, 0.001);
+
+        int extraSteps = (int) Math.floor(Math.log(targetHashMillis / medianMillis) / Math.log(2));
+        return Math.max(minStrength, Math.min(maxStrength, minStrength + extraSteps));
+    }
+}
@@ -0,0 +1,58 @@
+package com.securitydemo.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the embedded database of the "perf" profile with perf.seed.count users
+ * (user0@perf.local ... with password perf.seed.password) so logins and reads have data to hit.
+ * All users share one hash, computed once with the application's encoder, so seeding takes seconds.
+ */
+@Component
+@Profile("perf")
+public class PerfDataSeeder implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfDataSeeder.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${perf.seed.count:10000}")
+    private int count;
+
+    @Value("${perf.seed.password:password}")
+    private String password;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        String hash = passwordEncoder.encode(password);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(new Object[] { "user" + i, "user" + i + "@perf.local", hash, "USER", i + " Main Street", "Apt " + i });
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate(
+                        "insert into user (user_name, email, password, role, address1, address2, version) values (?, ?, ?, ?, ?, ?, 0)",
+                        batch);
+                batch.clear();
+            }
+        }
+        log.info("Seeded {} users in {} ms", count, System.currentTimeMillis() - start);
+    }
+}
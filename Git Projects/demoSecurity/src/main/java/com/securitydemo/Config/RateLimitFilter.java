@@ -0,0 +1,196 @@
+package com.securitydemo.Config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securitydemo.Service.AuditLog;
+import com.securitydemo.Service.RateLimiter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Rate limits the endpoints that burn a BCrypt hash (login and registration), before any authentication work.
+ *
+ * - By client IP: checked first, from the connection alone (set server.forward-headers-strategy behind a proxy).
+ *   IPv6 clients are keyed by their /64, which is what a single host usually controls.
+ * - By email: read from the JSON body, so one account cannot be hammered from many addresses.
+ *
+ * Rejections are a plain 429 with Retry-After, written before any hash is queued.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LIMITED_PATHS = Set.of("/users/login", "/users/Register");
+    private static final int MAX_BODY_BYTES = 8192; // Login and register bodies are tiny; larger ones are refused with 413
+
+    private final boolean enabled;
+    private final RateLimiter byIp;
+    private final RateLimiter byEmail;
+    private final ObjectMapper objectMapper;
+    private final AuditLog audit;
+
+    public RateLimitFilter(@Value("${auth.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${auth.rate-limit.ip.capacity:20}") int ipCapacity,
+                           @Value("${auth.rate-limit.ip.per-minute:60}") int ipPerMinute,
+                           @Value("${auth.rate-limit.email.capacity:5}") int emailCapacity,
+                           @Value("${auth.rate-limit.email.per-minute:10}") int emailPerMinute,
+                           @Value("${auth.rate-limit.max-keys:100000}") long maxKeys,
+                           @Value("${auth.rate-limit.idle-seconds:600}") long idleSeconds,
+                           MeterRegistry registry, ObjectMapper objectMapper, AuditLog audit) {
+        this.enabled = enabled;
+        Duration idle = Duration.ofSeconds(idleSeconds);
+        this.byIp = new RateLimiter("ip", ipCapacity, ipPerMinute, maxKeys, idle, registry);
+        this.byEmail = new RateLimiter("email", emailCapacity, emailPerMinute, maxKeys, idle, registry);
+        this.objectMapper = objectMapper;
+        this.audit = audit;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"POST".equals(request.getMethod()) || !LIMITED_PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long waitNanos = byIp.tryAcquire(clientKey(request.getRemoteAddr()));
+        if (waitNanos > 0) {
+            audit.throttled(null, request.getRemoteAddr(), request.getServletPath()); // Body not read, so no email
+            reject(response, waitNanos);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        String email = emailOf(body);
+        if (email != null) {
+            waitNanos = byEmail.tryAcquire(email);
+            if (waitNanos > 0) {
+                audit.throttled(email, request.getRemoteAddr(), request.getServletPath());
+                reject(response, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1)));
+        response.setContentType("text/plain");
+        response.getWriter().write("Too many requests, retry later");
+    }
+
+    private String emailOf(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email == null || !email.isTextual() ? null : email.asText().trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null; // Not JSON: the controller rejects it anyway
+        }
+    }
+
+    // IPv4 address as is; IPv6 reduced to its /64 prefix
+    private static String clientKey(String remoteAddr) {
+        if (remoteAddr == null || remoteAddr.indexOf(':') < 0) {
+            return remoteAddr;
+        }
+        try {
+            byte[] address = InetAddress.getByName(remoteAddr).getAddress(); // A literal, no DNS lookup
+            if (address.length != 16) {
+                return remoteAddr;
+            }
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < 8; i += 2) {
+                prefix.append(Integer.toHexString(((address[i] & 0xff) << 8) | (address[i + 1] & 0xff))).append(':');
+            }
+            return prefix.append(":/64").toString();
+        } catch (UnknownHostException e) {
+            return remoteAddr;
+        }
+    }
+
+    // Replays the body read here, so the controller can still read it
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory: it is available at once and then fully read
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
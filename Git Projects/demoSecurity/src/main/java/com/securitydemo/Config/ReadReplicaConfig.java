@@ -0,0 +1,69 @@
+package com.securitydemo.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.securitydemo.Service.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Read replicas, enabled by setting replica.urls.
+ *
+ * spring.datasource stays the primary (writes, and anything not in a read-only transaction);
+ * @Transactional(readOnly = true) work and the principal lookup are spread over the replicas,
+ * except inside the read-your-writes window (see ReadYourWrites).
+ */
+@Configuration
+@ConditionalOnProperty(name = "replica.urls")
+public class ReadReplicaConfig {
+
+    // The primary pool, configured exactly as the single datasource was (spring.datasource.*, spring.datasource.hikari.*)
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                                        @Value("${replica.urls}") List<String> urls,
+                                                        @Value("${replica.username:}") String username,
+                                                        @Value("${replica.password:}") String password,
+                                                        @Value("${replica.pool-size:10}") int poolSize,
+                                                        ReadYourWrites readYourWrites) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username.isEmpty() ? properties.determineUsername() : username) // Same credentials as the primary by default
+                    .password(username.isEmpty() ? properties.determinePassword() : password)
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, readYourWrites);
+    }
+
+    // What JPA and JdbcTemplate use: connections are fetched (and routed) only when the first statement runs
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
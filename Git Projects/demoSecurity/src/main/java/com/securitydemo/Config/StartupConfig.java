@@ -0,0 +1,54 @@
+package com.securitydemo.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.securitydemo.Repository.UserRepository;
+import com.securitydemo.Service.JWTService;
+import com.securitydemo.Service.RefreshTokenService;
+import com.securitydemo.Service.SigningKeyRing;
+import com.securitydemo.Service.TokenRevocationList;
+import com.securitydemo.Service.UserSearchIndex;
+
+/**
+ * Startup behaviour for spring.main.lazy-initialization (the "prod" profile).
+ *
+ * Beans with @Scheduled work stay eager, otherwise their jobs would only start with the first request
+ * that needs them. With startup.warmup the first authenticated request path (token signing and parsing,
+ * BCrypt, the user lookup) is run once before the application reports itself ready.
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupConfig.class);
+
+    private static final String WARMUP_EMAIL = "warmup@startup.local";
+
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(SigningKeyRing.class, TokenRevocationList.class, RefreshTokenService.class,
+                UserSearchIndex.class);
+    }
+
+    // Runners finish before the readiness state becomes ACCEPTING_TRAFFIC
+    @Bean
+    public ApplicationRunner warmup(@Value("${startup.warmup:false}") boolean enabled, JWTService jwtService,
+                                    PasswordEncoder passwordEncoder, UserRepository userRepository) {
+        return args -> {
+            if (!enabled) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            jwtService.parseClaims(jwtService.generateToken(WARMUP_EMAIL)); // Signing key, jjwt and Jackson serializers
+            passwordEncoder.matches(WARMUP_EMAIL, passwordEncoder.encode(WARMUP_EMAIL));
+            userRepository.findByEmail(WARMUP_EMAIL); // Hibernate query plan and a first pooled connection
+            log.info("Warmed up in {} ms", System.currentTimeMillis() - start);
+        };
+    }
+}
@@ -10,11 +10,14 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import jakarta.servlet.DispatcherType;
+
 /**
  * This class configures Spring Security for the application.
  */
@@ -26,10 +29,22 @@ public class WebSecurityConfig {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    // Same bean as above, used to store upgraded password hashes after login
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    // Shared, startup-calibrated encoder (see PasswordEncoderConfig)
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     // Inject the custom JWT Filter
     @Autowired
     private JwtFilter jwtFilter;
 
+    // Per-IP and per-email limits on login and registration
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     /**
      * Define the security filter chain
      * - Disable CSRF
@@ -48,7 +63,15 @@ public class WebSecurityConfig {
 
             // 2️⃣ Define which endpoints are public and which need authentication
             .authorizeHttpRequests(request -> request
-                .requestMatchers("/users/Register", "/users/login") // Allow register and login without auth
+                .requestMatchers("/users/Register", "/users/login", "/users/refresh") // Allow register, login and token refresh without auth
+                .permitAll()
+                .requestMatchers("/actuator/health", "/actuator/health/**", "/actuator/prometheus") // Health checks, probes and metric scrapes carry no token
+                .permitAll()
+                .requestMatchers("/.well-known/jwks.json") // Public verification keys
+                .permitAll()
+                .dispatcherTypeMatchers(DispatcherType.ERROR) // Let error responses (401, 404, 412...) through with their own status
+                .permitAll()
+                .dispatcherTypeMatchers(DispatcherType.ASYNC) // Completes a request authorized on its first dispatch (export stream, login)
                 .permitAll()
                 .anyRequest()
                 .authenticated() // Any other request must be authenticated
@@ -65,7 +88,10 @@ public class WebSecurityConfig {
             .authenticationProvider(authenticationProvider())
 
             // 5️⃣ Add our JWT filter before Spring's built-in UsernamePasswordAuthenticationFilter
-            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+
+            // 6️⃣ Rate limit login/registration ahead of everything else that costs CPU
+            .addFilterBefore(rateLimitFilter, JwtFilter.class);
 
         // 🔥 Finally, build and return the security filter chain
         return httpSecurity.build();
@@ -108,8 +134,9 @@ public class WebSecurityConfig {
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
-        provider.setPasswordEncoder(new BCryptPasswordEncoder(12)); // Set password encoder with strength 12
+        provider.setPasswordEncoder(passwordEncoder); // Set the shared password encoder
         provider.setUserDetailsService(userDetailsService); // Set the custom user details service
+        provider.setUserDetailsPasswordService(userDetailsPasswordService); // Rehash outdated hashes on successful login
         return provider;
     }
 
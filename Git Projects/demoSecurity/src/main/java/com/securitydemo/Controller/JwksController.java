@@ -0,0 +1,43 @@
+package com.securitydemo.Controller;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.securitydemo.Service.SigningKeyRing;
+import com.securitydemo.Service.UserETags;
+
+// Public keys for services that verify our tokens themselves (jwt.keys.algorithm ES256 or EdDSA; empty for HS256).
+// The document is built when the keys change, requests only compare the ETag or copy the cached JSON.
+@RestController
+public class JwksController {
+	@Autowired
+	private SigningKeyRing keyRing;
+
+	// Verifiers should also refetch when they meet an unknown kid, since a rotation is used right away
+	@Value("${jwt.jwks.max-age-seconds:300}")
+	private long maxAgeSeconds;
+
+	@GetMapping("/.well-known/jwks.json")
+	public ResponseEntity<String> jwks(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		SigningKeyRing.JwkSet jwks = keyRing.jwks();
+		CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+		if (UserETags.matches(ifNoneMatch, jwks.etag())) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(jwks.etag()).cacheControl(cacheControl).build();
+		}
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.eTag(jwks.etag())
+				.cacheControl(cacheControl)
+				.body(jwks.json());
+	}
+}
@@ -1,31 +1,67 @@
 package com.securitydemo.Controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
-
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.securitydemo.Dto.RefreshRequest;
+import com.securitydemo.Dto.TokenResponse;
+import com.securitydemo.Dto.UserPage;
+import com.securitydemo.Dto.UserPatch;
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Dto.UserSearchResult;
+import com.securitydemo.Entity.MyUserPrincipal;
 import com.securitydemo.Entity.Users;
+import com.securitydemo.Service.AuditLog;
+import com.securitydemo.Service.PasswordHashingExecutor;
+import com.securitydemo.Service.UserETags;
+import com.securitydemo.Service.UserImportService;
 import com.securitydemo.Service.UserServiceImpl;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 	@Autowired
 	private UserServiceImpl userService;
+	@Autowired
+	private PasswordHashingExecutor hashingExecutor;
+	@Autowired
+	private UserETags etags;
+	@Autowired
+	private UserImportService importService;
+	@Autowired
+	private AuditLog audit;
 
 	@GetMapping("/csrf")
 	public CsrfToken getToken(HttpServletRequest request) {
@@ -34,44 +70,171 @@ public class UserController {
 
 	}
 
+	// ?fields=email,username selects only those columns; the password is never returned.
+	// If-None-Match with the current list ETag is answered with 304 without reading the table.
 	@GetMapping("/")
+	public ResponseEntity<List<UserResponse>> getAllUsers(@RequestParam(required = false) Set<String> fields,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		String tag = etags.currentListTag(fields);
+		if (UserETags.matches(ifNoneMatch, tag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+		}
+		return ResponseEntity.ok().eTag(tag).body(userService.getAllUsers(fields));
+	}
+
+	// Keyset pagination: pass the nextCursor of the previous page to get the following one
+	@GetMapping("/page")
 	@ResponseStatus(code = HttpStatus.OK)
-	public List<Users> getAllUsers() {
-		return userService.getAllUsers();
+	public UserPage getUsersPage(@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "50") int size,
+			@RequestParam(required = false) Set<String> fields) {
+		return userService.getUsersPage(cursor, size, fields);
 	}
 
-	@GetMapping("/{email}")
+	// Partial username, email or address, case-insensitive; best matches first
+	@GetMapping("/search")
 	@ResponseStatus(code = HttpStatus.OK)
-	public Users getEmployeeById(@PathVariable String email) {
-		Optional<Users> user = userService.getUserByEmail(email);
+	public UserSearchResult searchUsers(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+		return userService.searchUsers(q, limit);
+	}
+
+	// Streams the whole table as NDJSON in constant memory
+	@GetMapping(value = "/export", produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> exportUsers() {
+		StreamingResponseBody body = out -> userService.exportUsers(out);
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+	}
+
+	// ETag is the row version; a matching If-None-Match is answered from memory when the version is known here
+	@GetMapping("/{email}")
+	public ResponseEntity<UserResponse> getEmployeeById(@PathVariable String email,
+			@RequestParam(required = false) Set<String> fields,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		String knownTag = etags.knownRowTag(email, fields);
+		if (UserETags.matches(ifNoneMatch, knownTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(knownTag).build();
+		}
+		long readStarted = etags.readStarted();
+		Optional<UserResponse> user = userService.getUserByEmail(email, fields);
 		if (user.isPresent()) {
-			return user.get();
+			String tag = etags.rowRead(email, user.get().version(), fields, readStarted);
+			if (UserETags.matches(ifNoneMatch, tag)) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+			}
+			return ResponseEntity.ok().eTag(tag).body(user.get());
 		} else {
 			throw new RuntimeException("User not found with provided email:" + email);
 		}
 	}
 
+	// Full replace; like PATCH, send If-Match: "<version>" to make it fail with 412 if the user changed meanwhile
 	@PutMapping("/")
-	@ResponseStatus(HttpStatus.OK)
-	public Users updateUser(@RequestBody Users user) {
+	public ResponseEntity<UserResponse> updateUser(@RequestBody Users user,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
 		if (user.getEmail() == null) {
 			throw new RuntimeException("User is missing. Cannot update.");
 		}
 
-		return userService.updateUser(user);
+		Users saved = userService.updateUser(user, parseVersion(ifMatch));
+		return ResponseEntity.ok().eTag("\"" + saved.getVersion() + "\"").body(UserResponse.from(saved)); // Validator for the next If-Match
 	}
 
+	// Partial update; send If-Match: "<version>" to make it fail with 412 if the user changed meanwhile
+	@PatchMapping("/{email}")
+	public ResponseEntity<Void> patchUser(@PathVariable String email, @RequestBody UserPatch patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		long newVersion = userService.patchUser(email, patch, parseVersion(ifMatch));
+		return ResponseEntity.noContent().eTag("\"" + newVersion + "\"").build(); // Validator for the next If-Match
+	}
+
+	// Accepts "5", W/"5" or a ?fields= variant like "5-email+username"
+	private static Long parseVersion(String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank()) {
+			return null;
+		}
+		String value = ifMatch.trim();
+		if (value.startsWith("W/")) {
+			value = value.substring(2);
+		}
+		value = value.replace("\"", "");
+		int fieldsStart = value.indexOf('-');
+		if (fieldsStart >= 0) {
+			value = value.substring(0, fieldsStart);
+		}
+		try {
+			return Long.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Unknown If-Match value");
+		}
+	}
+
+	// Password hashing runs on the dedicated pool; the request thread is released until it completes.
+	// Anyone can register, so the role is never taken from the body: authorities come from it.
 	@PostMapping("/Register")
-	@ResponseStatus(HttpStatus.CREATED)
-	public Users saveUser(@RequestBody Users user) {
-		return userService.saveUser(user);
+	public CompletableFuture<ResponseEntity<UserResponse>> saveUser(@RequestBody Users user) {
+		user.setRole(MyUserPrincipal.DEFAULT_ROLE);
+		return userService.saveUserAsync(user)
+				.thenApply(saved -> ResponseEntity.status(HttpStatus.CREATED).body(UserResponse.from(saved)));
 	}
 	
+	// Bulk registration from a streamed body: text/csv with a header line, or application/x-ndjson with one
+	// Register body per line. The report streams back as NDJSON: one line per rejected row, then a summary.
+	@PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+	public void importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body,
+			HttpServletResponse response) throws IOException {
+		UserImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+				? UserImportService.Format.CSV
+				: UserImportService.Format.NDJSON;
+		response.setContentType("application/x-ndjson");
+		importService.importUsers(body, format, response.getOutputStream());
+	}
+
+	// Every attempt is audited once its outcome is known, including a refusal because the hashing queue is full
 	@PostMapping("/login")
 //	@ResponseStatus(HttpStatus.CREATED)
-	public String login(@RequestBody Users user) {
-		return userService.verify(user);
+	public CompletableFuture<TokenResponse> login(@RequestBody Users user, HttpServletRequest request) {
+		String ip = request.getRemoteAddr(); // Read now, the outcome arrives on the hashing pool
+		try {
+			return userService.verifyAsync(user).whenComplete((tokens, error) -> audit.login(user.getEmail(), ip, error));
+		} catch (RejectedExecutionException e) {
+			audit.login(user.getEmail(), ip, e);
+			throw e;
+		}
+	}
+
+	// New access token for a refresh token; no password check, so it stays on the request thread
+	@PostMapping("/refresh")
+	public TokenResponse refresh(@RequestBody RefreshRequest request) {
+		return userService.refresh(request.refreshToken());
+	}
+
+	// Revokes the bearer token of this request and, if sent, the refresh token's session; other sessions keep working
+	@PostMapping("/logout")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+			@RequestBody(required = false) RefreshRequest request) {
+		userService.logout(authorization.substring("Bearer ".length()), request == null ? null : request.refreshToken());
+	}
+
+	// Registering an email that already exists: saveUser inserts, so the primary key rejects it
+	@ExceptionHandler(DataIntegrityViolationException.class)
+	public ResponseEntity<String> conflict() {
+		return ResponseEntity.status(HttpStatus.CONFLICT).body("User already exists");
+	}
+
+	// Concurrent update of the same user (version check failed)
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<String> updateConflict() {
+		return ResponseEntity.status(HttpStatus.CONFLICT).body("User was modified by someone else, reload and retry");
+	}
+
+	// Hashing queue is full: reject fast and tell the client when to come back
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<String> hashingBusy() {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(hashingExecutor.getRetryAfterSeconds()))
+				.body("Server busy, retry later");
 	}
 	
 	
@@ -0,0 +1,22 @@
+package com.securitydemo.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One line of the audit log. Never carries a password or a token.
+ *
+ * @param time   epoch milliseconds when the event happened
+ * @param type   what happened
+ * @param user   the user the event is about (login email, token subject, changed user), null if unknown
+ * @param actor  the authenticated user that caused it, null for anonymous requests
+ * @param ip     client address, for events that come from a request
+ * @param detail failure reason or changed fields
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AuditEvent(long time, Type type, String user, String actor, String ip, String detail) {
+
+	public enum Type {
+		LOGIN_SUCCEEDED, LOGIN_FAILED, THROTTLED, TOKEN_REJECTED,
+		USER_CREATED, USER_UPDATED, USER_PATCHED, USER_DELETED, USER_IMPORTED
+	}
+}
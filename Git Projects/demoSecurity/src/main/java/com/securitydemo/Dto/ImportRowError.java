@@ -0,0 +1,5 @@
+package com.securitydemo.Dto;
+
+// One rejected row of POST /users/import; line is 1-based in the uploaded file (the CSV header is line 1)
+public record ImportRowError(long line, String email, String error) {
+}
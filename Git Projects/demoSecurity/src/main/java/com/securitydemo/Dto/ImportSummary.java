@@ -0,0 +1,5 @@
+package com.securitydemo.Dto;
+
+// Last line of the POST /users/import report
+public record ImportSummary(long rows, long imported, long failed, long millis) {
+}
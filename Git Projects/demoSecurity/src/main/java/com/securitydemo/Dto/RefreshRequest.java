@@ -0,0 +1,5 @@
+package com.securitydemo.Dto;
+
+// Body of /users/refresh and (optionally) /users/logout
+public record RefreshRequest(String refreshToken) {
+}
@@ -0,0 +1,5 @@
+package com.securitydemo.Dto;
+
+// Returned by /users/login and /users/refresh; expiresIn is the access token lifetime in seconds
+public record TokenResponse(String accessToken, String refreshToken, long expiresIn) {
+}
@@ -0,0 +1,13 @@
+package com.securitydemo.Dto;
+
+import java.util.List;
+
+
+/**
+ * One page of users in email order.
+ *
+ * @param users      the rows of this page
+ * @param nextCursor opaque cursor for the next page, null when this is the last page
+ */
+public record UserPage(List<UserResponse> users, String nextCursor) {
+}
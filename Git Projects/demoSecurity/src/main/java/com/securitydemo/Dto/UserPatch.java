@@ -0,0 +1,8 @@
+package com.securitydemo.Dto;
+
+/**
+ * Body of PATCH /users/{email}. Only non-null fields are changed.
+ * The email is the primary key and cannot be patched.
+ */
+public record UserPatch(String username, String password, String role, String address1, String address2) {
+}
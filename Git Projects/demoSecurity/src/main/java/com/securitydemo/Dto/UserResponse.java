@@ -0,0 +1,25 @@
+package com.securitydemo.Dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.securitydemo.Entity.Users;
+
+/**
+ * What the API returns for a user. There is deliberately no password field.
+ * Fields that were not selected (see ?fields=) are null and left out of the JSON.
+ * The row version is always read but only sent as the ETag header, not in the body.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserResponse(String username, String email, String role, String address1, String address2,
+		@JsonIgnore Long version) {
+
+	// Names accepted by ?fields=, equal to the Users property names
+	public static final List<String> FIELDS = List.of("username", "email", "role", "address1", "address2");
+
+	public static UserResponse from(Users user) {
+		return new UserResponse(user.getUsername(), user.getEmail(), user.getRole(), user.getAddress1(), user.getAddress2(),
+				user.getVersion());
+	}
+}
@@ -0,0 +1,13 @@
+package com.securitydemo.Dto;
+
+import java.util.List;
+
+
+/**
+ * Users matching a search, best match first.
+ *
+ * @param users     at most limit users
+ * @param truncated true if the query matched too many users to check them all; a longer query gives complete results
+ */
+public record UserSearchResult(List<UserResponse> users, boolean truncated) {
+}
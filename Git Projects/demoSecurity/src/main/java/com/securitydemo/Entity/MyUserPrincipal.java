@@ -1,8 +1,13 @@
 package com.securitydemo.Entity; // Defines the package location of this class
 
 // Importing necessary Java and Spring Security classes
+import java.nio.charset.StandardCharsets; // For hashing the security stamp
+import java.security.MessageDigest; // SHA-256 digest
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays; // For splitting role lists
+import java.util.Base64; // For encoding the security stamp
 import java.util.Collection; // For handling collections
-import java.util.Collections; // For creating immutable collections
+import java.util.List; // For the precomputed authorities
 
 import org.springframework.security.core.GrantedAuthority; // Represents an authority granted to the user
 import org.springframework.security.core.authority.SimpleGrantedAuthority; // A simple implementation of GrantedAuthority
@@ -14,25 +19,68 @@ import org.springframework.security.core.userdetails.UserDetails; // Core interf
  */
 public class MyUserPrincipal implements UserDetails {
 
+    public static final String DEFAULT_ROLE = "USER"; // Authority given to users without a stored role
+    public static final String ADMIN_ROLE = "ADMIN"; // Authority needed to create users with any other role
+
     private Users user; // The Users entity instance representing the authenticated user
 
+    private final List<GrantedAuthority> authorities; // Built once from Users.role
+
+    private String securityStamp; // Computed lazily, see getSecurityStamp()
+
     /**
      * Constructor that initializes MyUserPrincipal with a Users object.
      * @param user The Users entity containing user details.
      */
     public MyUserPrincipal(Users user) {
         this.user = user;
+        this.authorities = toAuthorities(user.getRole());
     }
 
     /**
      * Returns the authorities granted to the user.
-     * In this implementation, every user is granted a single authority "USER".
+     * Authorities come from the comma separated Users.role column, users without a role get "USER".
      * @return A collection containing the granted authorities.
      */
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // Returns a singleton collection with a SimpleGrantedAuthority of "USER"
-        return Collections.singleton(new SimpleGrantedAuthority("USER"));
+        return authorities;
+    }
+
+    /**
+     * Converts a comma separated role string (e.g. "USER,ADMIN") into authorities.
+     * @param role The stored role value, may be null.
+     * @return An immutable list of authorities, never empty.
+     */
+    public static List<GrantedAuthority> toAuthorities(String role) {
+        if (role == null || role.isBlank()) {
+            return List.of(new SimpleGrantedAuthority(DEFAULT_ROLE));
+        }
+        return Arrays.stream(role.split(","))
+                .map(String::trim)
+                .filter(r -> !r.isEmpty())
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+
+    /**
+     * Returns a short stamp derived from the password hash and role.
+     * It changes whenever credentials or authorities change, so tokens can carry it
+     * and be compared against the current user state without keeping the state in the token.
+     * @return A URL-safe stamp string.
+     */
+    public String getSecurityStamp() {
+        if (securityStamp != null) {
+            return securityStamp;
+        }
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] digest = sha256.digest((user.getPassword() + "|" + user.getRole()).getBytes(StandardCharsets.UTF_8));
+            securityStamp = Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 9));
+            return securityStamp;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is mandatory on every JVM
+        }
     }
 
     /**
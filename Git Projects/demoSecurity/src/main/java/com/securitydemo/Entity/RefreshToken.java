@@ -0,0 +1,73 @@
+package com.securitydemo.Entity;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A refresh token handed out at login or by a previous refresh.
+ *
+ * Only the SHA-256 of the token is stored, so a leaked table cannot be replayed. Every token belongs to a
+ * family (one login); a refresh marks the presented token as used and adds the next one to the same family.
+ * Used tokens are kept until they expire so that presenting one again is recognised as reuse.
+ */
+@Entity
+@Table(name = "refresh_token", indexes = {
+		@Index(name = "idx_refresh_token_email", columnList = "email"),
+		@Index(name = "idx_refresh_token_family", columnList = "family") })
+@Data
+@NoArgsConstructor
+public class RefreshToken implements Persistable<String> {
+	@Id
+	@Column(name = "token_hash", length = 43)
+	private String tokenHash; // Base64url SHA-256 of the token
+	private String email;
+	@Column(length = 36)
+	private String family;
+	@Column(name = "expires_at")
+	private long expiresAt; // Epoch millis
+	private boolean used;
+
+	// Ids are assigned by us and never updated through save(), so every instance we build is an INSERT
+	@Transient
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	private boolean newEntity = true;
+
+	public RefreshToken(String tokenHash, String email, String family, long expiresAt) {
+		this.tokenHash = tokenHash;
+		this.email = email;
+		this.family = family;
+		this.expiresAt = expiresAt;
+	}
+
+	@Override
+	public String getId() {
+		return tokenHash;
+	}
+
+	@Override
+	public boolean isNew() {
+		return newEntity;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		this.newEntity = false;
+	}
+}
@@ -1,19 +1,40 @@
 package com.securitydemo.Entity;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
-import lombok.AllArgsConstructor;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 @Entity
-@Table(name="user")
+@Table(name = "user", indexes = @Index(name = "idx_user_user_name", columnList = "user_name")) // DDL in db/migration
+@DynamicUpdate // UPDATE statements only contain the columns that changed
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-public class Users{
+public class Users implements Persistable<String> {
+
+	// Last initial version handed out: epoch millis, strictly increasing so users created in the same millisecond differ too
+	private static final AtomicLong LAST_SEED = new AtomicLong();
+
 	@Column(name = "user_name")
 	private String username;
 	@Id
@@ -22,4 +43,59 @@ public class Users{
 	private String role;
 	private String address1;
 	private String address2;
-}
\ No newline at end of file
+
+	// Optimistic locking: every update bumps it and checks the value that was read. It is also the ETag of the row.
+	// @ColumnDefault rather than columnDefinition: Hibernate uses the column definition as the cast type of PATCH's version + 1
+	// Rows inserted through JPA start at their creation time (see seedVersion), so a deleted and re-created
+	// user never reuses the versions, and ETags, of the previous one.
+	@Version
+	@Column(nullable = false)
+	@ColumnDefault("0")
+	@JsonIgnore
+	private long version;
+
+	// The id (email) is assigned by us, so Spring Data cannot tell new from existing rows by looking at it.
+	// Instances start as new (save() issues a plain INSERT) and become existing once loaded or persisted.
+	@Transient
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	private boolean newEntity = true;
+
+	public Users(String username, String email, String password, String role, String address1, String address2) {
+		this.username = username;
+		this.email = email;
+		this.password = password;
+		this.role = role;
+		this.address1 = address1;
+		this.address2 = address2;
+	}
+
+	@Override
+	@JsonIgnore
+	public String getId() {
+		return email;
+	}
+
+	@Override
+	@JsonIgnore
+	public boolean isNew() {
+		return newEntity;
+	}
+
+	// Hibernate keeps a positive initial version instead of seeding its own 0
+	@PrePersist
+	public void seedVersion() {
+		if (version == 0) {
+			version = LAST_SEED.accumulateAndGet(System.currentTimeMillis(), (last, now) -> Math.max(last + 1, now));
+		}
+	}
+
+	// Marks a detached instance (e.g. a request body) as an existing row, so save() merges it
+	@PostLoad
+	@PostPersist
+	public void markNotNew() {
+		this.newEntity = false;
+	}
+}
@@ -0,0 +1,30 @@
+package com.securitydemo.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.securitydemo.Entity.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+	// Claims the token for one refresh; 0 rows means unknown, expired or already used (the row decides which)
+	@Modifying
+	@Query("update RefreshToken t set t.used = true where t.tokenHash = :hash and t.used = false and t.expiresAt > :now")
+	int markUsed(@Param("hash") String hash, @Param("now") long now);
+
+	@Modifying
+	@Query("delete from RefreshToken t where t.family = :family")
+	int deleteByFamily(@Param("family") String family);
+
+	@Modifying
+	@Query("delete from RefreshToken t where t.email = :email")
+	int deleteByEmail(@Param("email") String email);
+
+	@Modifying
+	@Query("delete from RefreshToken t where t.expiresAt <= :now")
+	int deleteExpired(@Param("now") long now);
+}
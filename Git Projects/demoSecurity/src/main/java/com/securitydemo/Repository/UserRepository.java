@@ -1,15 +1,34 @@
 package com.securitydemo.Repository;
 
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.securitydemo.Dto.UserResponse;
 import com.securitydemo.Entity.Users;
 
+import jakarta.persistence.QueryHint;
+
 
 @Repository
-public interface UserRepository extends JpaRepository<Users, String> {
+@Transactional(readOnly = true) // Queries declared here are reads (replica-eligible); inherited writes keep their own read-write transaction
+public interface UserRepository extends JpaRepository<Users, String>, UserRepositoryCustom {
 
 	Users findByUsername(String username);
 
 	Users findByEmail(String email);
+
+	// Read-only cursor over the whole table, projected to the public fields (no entities, no password);
+	// must be consumed inside a transaction and closed
+	@Query("select new com.securitydemo.Dto.UserResponse(u.username, u.email, u.role, u.address1, u.address2, u.version)"
+			+ " from Users u order by u.email")
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	Stream<UserResponse> streamAllOrderByEmail();
 }
@@ -0,0 +1,27 @@
+package com.securitydemo.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.securitydemo.Dto.UserResponse;
+
+/**
+ * Queries that select only the requested columns (see UserResponse.FIELDS).
+ */
+public interface UserRepositoryCustom {
+
+	// Users in email order after the given email (null = from the start); limit <= 0 means no limit
+	List<UserResponse> findFields(Set<String> fields, String emailAfter, int limit);
+
+	Optional<UserResponse> findFieldsByEmail(String email, Set<String> fields);
+
+	/**
+	 * Single UPDATE of only the given columns, bumping the version.
+	 * With an expected version the row is only updated if it still has that version.
+	 *
+	 * @return the new version, or null if nothing was updated (unknown email or version mismatch)
+	 */
+	Long patch(String email, Map<String, Object> changes, Long expectedVersion);
+}
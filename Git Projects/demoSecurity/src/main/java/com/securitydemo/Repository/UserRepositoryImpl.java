@@ -0,0 +1,113 @@
+package com.securitydemo.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Entity.Users;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Builds "select <requested columns> from user" queries, so unselected columns are never read or sent.
+ * Picked up by Spring Data as the implementation of UserRepositoryCustom.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<UserResponse> findFields(Set<String> fields, String emailAfter, int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		Root<Users> user = query.from(Users.class);
+		List<String> columns = columns(fields);
+		query.multiselect(selections(user, columns));
+		if (emailAfter != null) {
+			query.where(cb.greaterThan(user.get("email"), emailAfter));
+		}
+		query.orderBy(cb.asc(user.get("email")));
+
+		TypedQuery<Tuple> typed = entityManager.createQuery(query);
+		if (limit > 0) {
+			typed.setMaxResults(limit);
+		}
+		return typed.getResultList().stream().map(row -> toResponse(row, columns)).toList();
+	}
+
+	@Override
+	public Optional<UserResponse> findFieldsByEmail(String email, Set<String> fields) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		Root<Users> user = query.from(Users.class);
+		List<String> columns = columns(fields);
+		query.multiselect(selections(user, columns));
+		query.where(cb.equal(user.get("email"), email));
+		return entityManager.createQuery(query).getResultStream().findFirst().map(row -> toResponse(row, columns));
+	}
+
+	@Override
+	public Long patch(String email, Map<String, Object> changes, Long expectedVersion) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<Users> update = cb.createCriteriaUpdate(Users.class);
+		Root<Users> user = update.from(Users.class);
+		changes.forEach(update::set); // Only the changed columns
+		update.set(user.<Long>get("version"), cb.sum(user.<Long>get("version"), 1L));
+
+		Predicate where = cb.equal(user.get("email"), email);
+		if (expectedVersion != null) {
+			where = cb.and(where, cb.equal(user.get("version"), expectedVersion));
+		}
+		update.where(where);
+		if (entityManager.createQuery(update).executeUpdate() == 0) {
+			return null;
+		}
+		// Read back in the same transaction: without If-Match the version the update started from is not known
+		return entityManager.createQuery("select u.version from Users u where u.email = :email", Long.class)
+				.setParameter("email", email)
+				.getSingleResult();
+	}
+
+	// The requested columns plus the version, which is always needed for ETags
+	private static List<Selection<?>> selections(Root<Users> user, List<String> columns) {
+		List<Selection<?>> selections = new ArrayList<>();
+		columns.forEach(c -> selections.add(user.get(c).alias(c)));
+		selections.add(user.get("version").alias("version"));
+		return selections;
+	}
+
+	// Requested fields in a fixed order; null or empty means every public field
+	private static List<String> columns(Set<String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			return UserResponse.FIELDS;
+		}
+		return UserResponse.FIELDS.stream().filter(fields::contains).toList();
+	}
+
+	private static UserResponse toResponse(Tuple row, List<String> columns) {
+		return new UserResponse(
+				value(row, columns, "username"),
+				value(row, columns, "email"),
+				value(row, columns, "role"),
+				value(row, columns, "address1"),
+				value(row, columns, "address2"),
+				row.get("version", Long.class));
+	}
+
+	private static String value(Tuple row, List<String> columns, String field) {
+		return columns.contains(field) ? row.get(field, String.class) : null;
+	}
+}
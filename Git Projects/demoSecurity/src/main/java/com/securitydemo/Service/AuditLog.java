@@ -0,0 +1,354 @@
+package com.securitydemo.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securitydemo.Dto.AuditEvent;
+import com.securitydemo.Dto.AuditEvent.Type;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Append-only audit log of login attempts, rejected tokens and user changes.
+ *
+ * Request threads only build the event and put it into a bounded lock-free ring buffer (one CAS, no I/O).
+ * A single writer thread drains the ring in batches, appends each batch to the current file with one write
+ * and forces it to disk once per batch, or at most every audit.fsync-interval-ms. Batches grow with the load,
+ * so one fsync covers more events the busier the application is.
+ *
+ * When the ring is full, audit.when-full decides: drop (requests are never slowed down) or block (the request
+ * waits up to audit.block-timeout-ms for room). Events that could not be kept, or not be written, are counted
+ * in audit.events.dropped.
+ *
+ * Files are NDJSON, named audit-<epoch millis>.ndjson after the time they were opened, and roll over by size and
+ * age; AuditLogReader queries them offline by user and time range. A blank audit.dir records nothing.
+ */
+@Service
+public class AuditLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    public enum WhenFull { DROP, BLOCK }
+
+    private static final String FILE_PREFIX = "audit-";
+    private static final String FILE_SUFFIX = ".ndjson";
+    private static final int MAX_BATCH = 4096; // Events per write
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ObjectMapper objectMapper = new ObjectMapper(); // Plain, like the one of AuditLogReader
+    private final Path dir;
+    private final Ring ring;
+    private final WhenFull whenFull;
+    private final long blockTimeoutNanos;
+    private final long maxFileBytes;
+    private final long maxFileAgeMillis;
+    private final long fsyncIntervalNanos;
+    private final Counter written;
+    private final Counter dropped;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Only used by the writer thread
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(64 * 1024);
+    private FileChannel file;
+    private long fileSize;
+    private long fileOpenedAt;
+    private long lastSyncNanos;
+    private boolean unsynced;
+
+    public AuditLog(MeterRegistry registry,
+                    @Value("${audit.dir:}") String dir,
+                    @Value("${audit.buffer-size:65536}") int bufferSize,
+                    @Value("${audit.when-full:drop}") WhenFull whenFull,
+                    @Value("${audit.block-timeout-ms:50}") long blockTimeoutMs,
+                    @Value("${audit.max-file-mb:64}") long maxFileMb,
+                    @Value("${audit.max-file-minutes:60}") long maxFileMinutes,
+                    @Value("${audit.fsync-interval-ms:0}") long fsyncIntervalMs) {
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+        this.ring = new Ring(bufferSize);
+        this.whenFull = whenFull;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.maxFileBytes = maxFileMb * 1024 * 1024;
+        this.maxFileAgeMillis = TimeUnit.MINUTES.toMillis(maxFileMinutes);
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.written = Counter.builder("audit.events.written")
+                .description("Audit events appended to the audit files")
+                .register(registry);
+        this.dropped = Counter.builder("audit.events.dropped")
+                .description("Audit events lost because the buffer was full or the file could not be written")
+                .register(registry);
+        Gauge.builder("audit.buffer.size", ring, Ring::size)
+                .description("Audit events waiting for the writer")
+                .register(registry);
+        if (this.dir == null) {
+            this.writer = null;
+        } else {
+            this.writer = new Thread(this::drain, "audit-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+    }
+
+    // POST /users/login; error is null when the login succeeded
+    public void login(String email, String ip, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        record(cause == null ? Type.LOGIN_SUCCEEDED : Type.LOGIN_FAILED, email, ip, cause == null ? null : cause.getClass().getSimpleName());
+    }
+
+    // Login or registration refused by the rate limiter
+    public void throttled(String email, String ip, String path) {
+        record(Type.THROTTLED, email, ip, path);
+    }
+
+    // Bearer token that did not authenticate the request; subject is null when the token could not be read
+    public void tokenRejected(AuthMetrics.Rejection reason, String subject, String ip) {
+        record(Type.TOKEN_REJECTED, subject, ip, reason.name());
+    }
+
+    // User written through UserServiceImpl or the import; the client address is taken from the current request, if any
+    public void userChanged(Type type, String email, String detail) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        String ip = attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest().getRemoteAddr() : null;
+        record(type, email, ip, detail);
+    }
+
+    /**
+     * Publishes the event for the writer. The actor is the user authenticated on this thread, if any.
+     */
+    public void record(Type type, String user, String ip, String detail) {
+        if (dir == null) {
+            return;
+        }
+        AuditEvent event = new AuditEvent(System.currentTimeMillis(), type, user, currentActor(), ip, detail);
+        if (ring.offer(event)) {
+            return;
+        }
+        if (whenFull == WhenFull.BLOCK) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            do {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (ring.offer(event)) {
+                    return;
+                }
+            } while (System.nanoTime() - deadline < 0);
+        }
+        dropped.increment();
+    }
+
+    // Waits for the writer to write and force what was published before
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken ? null : authentication.getName();
+    }
+
+    private void drain() {
+        while (true) {
+            boolean stopping = !running; // Read before draining, so everything published before destroy() is written
+            int count = 0;
+            AuditEvent event;
+            while (count < MAX_BATCH && (event = ring.poll()) != null) {
+                try {
+                    batch.write(objectMapper.writeValueAsBytes(event));
+                    batch.write('\n');
+                    count++;
+                } catch (IOException e) {
+                    dropped.increment(); // Not serializable; cannot happen with the fields of AuditEvent
+                }
+            }
+            if (count > 0) {
+                append(count);
+            } else if (stopping) {
+                break;
+            } else {
+                try {
+                    syncIfDue(); // Nothing new: catch up on a sync that the interval postponed
+                } catch (IOException e) {
+                    failed(0, e);
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        closeFile();
+    }
+
+    private void append(int count) {
+        try {
+            long now = System.currentTimeMillis();
+            if (file != null && (fileSize + batch.size() > maxFileBytes || now - fileOpenedAt >= maxFileAgeMillis)) {
+                closeFile();
+            }
+            if (file == null) {
+                openFile(now);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            fileSize += buffer.limit();
+            unsynced = true;
+            syncIfDue();
+            written.increment(count);
+        } catch (IOException e) {
+            failed(count, e);
+        } finally {
+            batch.reset();
+        }
+    }
+
+    private void syncIfDue() throws IOException {
+        if (unsynced && System.nanoTime() - lastSyncNanos >= fsyncIntervalNanos) {
+            file.force(false); // Group commit: one fsync for the whole batch
+            unsynced = false;
+            lastSyncNanos = System.nanoTime();
+        }
+    }
+
+    // The file is reopened (as a new one) with the next batch
+    private void failed(int count, IOException e) {
+        dropped.increment(count);
+        log.error("Audit log write failed, {} events lost", count, e);
+        closeFile();
+    }
+
+    private void openFile(long now) throws IOException {
+        Files.createDirectories(dir);
+        for (long start = now; ; start++) {
+            try {
+                file = FileChannel.open(fileOf(dir, start), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                fileOpenedAt = start;
+                fileSize = 0;
+                return;
+            } catch (FileAlreadyExistsException e) {
+                // Opened twice within a millisecond, or a file of a previous run: take the next name
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            if (unsynced) {
+                file.force(false);
+            }
+            file.close();
+        } catch (IOException e) {
+            log.warn("Audit log close failed", e);
+        }
+        file = null;
+        unsynced = false;
+    }
+
+    static Path fileOf(Path dir, long start) {
+        return dir.resolve(FILE_PREFIX + start + FILE_SUFFIX);
+    }
+
+    // Time in the name of an audit file, null for any other file
+    static Long startOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer queue. A producer claims a position with one CAS on tail;
+     * the sequence number of each slot says whether it is free for the producer of that position or holds
+     * an event for the consumer, so neither side takes a lock.
+     */
+    private static final class Ring {
+        private final AuditEvent[] events;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head; // Only written by the consumer
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1; // Next power of two
+            this.events = new AuditEvent[size];
+            this.sequences = new AtomicLongArray(size);
+            this.mask = size - 1;
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(AuditEvent event) {
+            long position = tail.get();
+            while (true) {
+                int index = (int) position & mask;
+                long gap = sequences.get(index) - position;
+                if (gap == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        events[index] = event;
+                        sequences.lazySet(index, position + 1); // Hands the event to the consumer
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (gap < 0) {
+                    return false; // Full: the consumer has not taken the event of the previous round yet
+                } else {
+                    position = tail.get(); // Claimed by another producer in the meantime
+                }
+            }
+        }
+
+        AuditEvent poll() {
+            long position = head;
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                return null;
+            }
+            AuditEvent event = events[index];
+            events[index] = null;
+            sequences.lazySet(index, position + events.length); // Free for the producer of the next round
+            head = position + 1;
+            return event;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.securitydemo.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securitydemo.Dto.AuditEvent;
+
+/**
+ * Offline queries over the files of AuditLog: the events about or by one user, in a time range.
+ *
+ * Only the files that can hold events of the range are read. A file holds what was written from the time in
+ * its name until the next file was opened, and an event is written shortly after it happened (MAX_WRITE_LAG).
+ * A last line cut short by a crash is skipped.
+ *
+ * Runs without the application, e.g. on a copy of audit.dir:
+ * java -cp demo.jar -Dloader.main=com.securitydemo.Service.AuditLogReader org.springframework.boot.loader.launch.PropertiesLauncher
+ *      ~/.demosecurity/audit --user alice@example.com --from 2026-10-01T00:00:00Z --to 2026-10-02T00:00:00Z
+ * Matching events are printed as NDJSON, in the order they were written.
+ */
+public final class AuditLogReader {
+
+    private static final long MAX_WRITE_LAG_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private AuditLogReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.out.println("Usage: AuditLogReader <audit dir> [--user <email>] [--from <instant>] [--to <instant>]");
+            return;
+        }
+        String user = null;
+        long from = 0;
+        long to = Long.MAX_VALUE;
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--user" -> user = args[i + 1];
+                case "--from" -> from = Instant.parse(args[i + 1]).toEpochMilli();
+                case "--to" -> to = Instant.parse(args[i + 1]).toEpochMilli();
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        try (Stream<AuditEvent> events = read(Path.of(args[0]), user, from, to)) {
+            for (AuditEvent event : (Iterable<AuditEvent>) events::iterator) {
+                System.out.println(OBJECT_MAPPER.writeValueAsString(event));
+            }
+        }
+    }
+
+    /**
+     * Events with from <= time < to whose user or actor is the given email (any user when null).
+     * Files are read lazily, one after the other; close the stream when done.
+     */
+    public static Stream<AuditEvent> read(Path dir, String user, long from, long to) throws IOException {
+        List<Long> starts;
+        try (Stream<Path> files = Files.list(dir)) {
+            starts = files.map(AuditLog::startOf).filter(Objects::nonNull).sorted().toList();
+        }
+        List<Path> selected = new ArrayList<>();
+        for (int i = 0; i < starts.size(); i++) {
+            long start = starts.get(i);
+            long end = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+            if (end > from && start - MAX_WRITE_LAG_MILLIS < to) {
+                selected.add(AuditLog.fileOf(dir, start));
+            }
+        }
+        return selected.stream()
+                .flatMap(AuditLogReader::events)
+                .filter(event -> event.time() >= from && event.time() < to)
+                .filter(event -> user == null || user.equalsIgnoreCase(event.user()) || user.equalsIgnoreCase(event.actor()));
+    }
+
+    private static Stream<AuditEvent> events(Path file) {
+        try {
+            return Files.lines(file, StandardCharsets.UTF_8).map(AuditLogReader::parse).filter(Objects::nonNull);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read audit file " + file, e);
+        }
+    }
+
+    private static AuditEvent parse(String line) {
+        try {
+            return OBJECT_MAPPER.readValue(line, AuditEvent.class);
+        } catch (JsonProcessingException e) {
+            return null; // Torn line
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.securitydemo.Service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters for the authentication hot path.
+ *
+ * - jwt.filter{phase}: time spent in each JwtFilter phase
+ * - jwt.rejected{reason}: tokens that did not authenticate the request, by reason
+ *
+ * All meters are registered once here, so recording is a plain call on a pre-built Timer/Counter
+ * (no registry lookup or tag allocation per request). Histogram buckets are configured in
+ * application.yml (management.metrics.distribution).
+ */
+@Service
+public class AuthMetrics {
+
+    public enum Phase { PARSE, VERIFY, USER_LOAD, CONTEXT }
+
+    public enum Rejection { EXPIRED, BAD_SIGNATURE, MALFORMED, UNKNOWN_USER, STALE, REVOKED }
+
+    private final Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+    private final Map<Rejection, Counter> rejections = new EnumMap<>(Rejection.class);
+
+    public AuthMetrics(MeterRegistry registry) {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, Timer.builder("jwt.filter")
+                    .description("Time spent in each JwtFilter phase")
+                    .tag("phase", tagValue(phase))
+                    .register(registry));
+        }
+        for (Rejection reason : Rejection.values()) {
+            rejections.put(reason, Counter.builder("jwt.rejected")
+                    .description("Bearer tokens that did not authenticate the request")
+                    .tag("reason", tagValue(reason))
+                    .register(registry));
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        phases.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rejected(Rejection reason) {
+        rejections.get(reason).increment();
+    }
+
+    // Maps a failed verification or lookup to its rejection reason
+    public static Rejection reasonOf(RuntimeException e) {
+        if (e instanceof ExpiredJwtException) {
+            return Rejection.EXPIRED;
+        }
+        if (e instanceof SecurityException) {
+            return Rejection.BAD_SIGNATURE; // Signature does not match the key
+        }
+        if (e instanceof UsernameNotFoundException) {
+            return Rejection.UNKNOWN_USER;
+        }
+        return Rejection.MALFORMED;
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
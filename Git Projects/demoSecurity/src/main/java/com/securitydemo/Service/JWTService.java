@@ -1,60 +1,98 @@
 package com.securitydemo.Service; // Declares the package location of this class
 
 // Importing required classes
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
-
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.securitydemo.Entity.MyUserPrincipal;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 
 @Service // Marks this class as a Spring Service for dependency injection
 public class JWTService {
 
-    private String secretKey = ""; // Variable to store the secret key for signing tokens
+    public static final String ROLES_CLAIM = "roles"; // Authorities of the user, only present in stateless mode
+    public static final String STAMP_CLAIM = "ver"; // Security stamp of the user at login time
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms"; // "iat" in milliseconds, checked against user revocations
+
+    // Lifetime of access tokens; keep it short, clients renew through /users/refresh instead of logging in again
+    @Value("${jwt.access-token-seconds:900}")
+    private long accessTokenSeconds = 900;
+
+    // When enabled, tokens carry roles + stamp and JwtFilter authenticates from the claims alone (no DB lookup)
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
+
+    private final SigningKeyRing keyRing; // Persistent, rotating signing keys (already decoded)
+
+    private final JwtParser parser; // Parsers are immutable and thread-safe, so one instance is shared
+
+    // Constructor used by Spring: keys come from the shared key file
+    @Autowired
+    public JWTService(SigningKeyRing keyRing) {
+        this.keyRing = keyRing;
+        this.parser = Jwts.parser().keyLocator(keyRing).build(); // Verification key is looked up by the "kid" header
+    }
 
-    // Constructor to auto-generate a secret key during service creation
+    // Constructor with a throw-away in-memory key, for tests and benchmarks
     public JWTService() {
-        try {
-            KeyGenerator keyGen = KeyGenerator.getInstance("HmacSHA256"); // Create a key generator for HMAC SHA-256
-            SecretKey sk = keyGen.generateKey(); // Generate the secret key
-            secretKey = Base64.getEncoder().encodeToString(sk.getEncoded()); // Encode the key as a Base64 string
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e); // If algorithm is not found, throw a runtime exception
-        }
+        this(new SigningKeyRing("", 24, 24));
+    }
+
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    public void setStateless(boolean stateless) {
+        this.stateless = stateless;
+    }
+
+    public long getTokenValidityMillis() {
+        return accessTokenSeconds * 1000;
     }
 
     // Method to generate a JWT token based on the user's email
     public String generateToken(String email) {
-        Map<String, Object> claims = new HashMap<>(); // Create an empty set of claims (can add custom claims if needed)
-        return Jwts.builder() // Start building the JWT
+        return generateToken(email, new HashMap<>()); // No custom claims
+    }
+
+    // Method to generate a JWT token for an authenticated principal; embeds roles and stamp in stateless mode
+    public String generateToken(MyUserPrincipal principal) {
+        Map<String, Object> claims = new HashMap<>();
+        if (stateless) {
+            claims.put(ROLES_CLAIM, principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+            claims.put(STAMP_CLAIM, principal.getSecurityStamp());
+        }
+        return generateToken(principal.getUsername(), claims);
+    }
+
+    private String generateToken(String email, Map<String, Object> claims) {
+        long now = System.currentTimeMillis();
+        return keyRing.signWith(Jwts.builder()) // Start building the JWT, signed with the active key and its kid
                 .claims() // Set claims
                 .add(claims)
+                .add(ISSUED_AT_MILLIS_CLAIM, now) // "iat" only has seconds, too coarse to tell a login from a revocation just before it
                 .subject(email) // Set the subject (the user's email)
-                .issuedAt(new Date(System.currentTimeMillis())) // Set the current time as issued time
-                .expiration(new Date(System.currentTimeMillis() + 100 * 60 * 30)) // Set token expiration time (current + 30 minutes)
+                .id(UUID.randomUUID().toString()) // Unique token id ("jti"), lets a single token be revoked
+                .issuedAt(new Date(now)) // Set the current time as issued time
+                .expiration(new Date(now + getTokenValidityMillis())) // Set token expiration time (current + access token lifetime)
                 .and()
-                .signWith(getKey()) // Sign the token with secret key
                 .compact(); // Build the token into a compact, URL-safe string
     }
 
-    // Helper method to decode the secret key into a SecretKey object
-    private SecretKey getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey); // Decode the Base64 secret key
-        return Keys.hmacShaKeyFor(keyBytes); // Generate HMAC-SHA key for signing tokens
-    }
-
     // Method to extract the email (subject) from a JWT token
     public String extractEmail(String token) {
         return extractClaim(token, Claims::getSubject); // Extracts the subject field from the claims
@@ -68,11 +106,20 @@ public class JWTService {
 
     // Method to extract all claims from the JWT token
     private Claims extractAllClaims(String token) {
-        return Jwts.parser() // Create a JWT parser
-                .verifyWith(getKey()) // Set the key to verify the signature
-                .build()
-                .parseSignedClaims(token) // Parse the token and validate it
-                .getPayload(); // Get the payload part (claims)
+        return parseClaims(token);
+    }
+
+    /**
+     * Verifies the signature of the token and parses its payload in a single pass.
+     * Callers should keep the returned claims instead of re-parsing the token for each field.
+     *
+     * @param token compact JWT string
+     * @return verified claims
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, expired or the signature does not match
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token) // Verify signature, expiry and parse in one go
+                .getPayload();
     }
 
     // Method to validate the token against user details (checks email and expiration)
@@ -81,6 +128,20 @@ public class JWTService {
         return (email.equals(userDetails.getUsername()) && !isTokenExpired(token)); // Return true if emails match and token is not expired
     }
 
+    // Same check as above but against claims that were already verified, so no parsing happens here
+    public boolean validateToken(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
+    }
+
+    // Returns the authorities embedded in a stateless token, or null if the token does not carry any
+    public List<GrantedAuthority> extractAuthorities(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream().<GrantedAuthority>map(r -> new SimpleGrantedAuthority(String.valueOf(r))).toList();
+    }
+
     // Method to check if the token is expired
     private boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date()); // Check if expiration date is before the current time
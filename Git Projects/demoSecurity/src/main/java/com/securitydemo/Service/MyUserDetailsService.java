@@ -1,22 +1,57 @@
 package com.securitydemo.Service; // Package declaration
 
 // Importing necessary classes
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.securitydemo.Entity.MyUserPrincipal;
 import com.securitydemo.Entity.Users;
 import com.securitydemo.Repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
 @Service // Marks this class as a Spring Service, so Spring will detect and create a bean of it
-public class MyUserDetailsService implements UserDetailsService { // Implements UserDetailsService interface provided by Spring Security
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService, MeterBinder { // Implements UserDetailsService interface provided by Spring Security
 
     @Autowired // Automatically injects the UserRepository dependency
     private UserRepository userrepo;
 
+    @Autowired // ETag validators, a rehash bumps the row version
+    private UserETags etags;
+
+    @Autowired // Sends lookups of recently written users to the primary when replicas are configured
+    private ReadYourWrites readYourWrites;
+
+    // Principals loaded recently, keyed by email.
+    // Concurrent misses for the same email share one database query: the first caller registers a future
+    // and loads, the others wait on that future. The query runs outside any cache lock, so a virtual
+    // thread waiting on the database never pins its carrier thread.
+    private final AsyncCache<String, MyUserPrincipal> principals;
+
+    public MyUserDetailsService(@Value("${users.cache.max-size:10000}") long maxSize,
+                                @Value("${users.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize) // Size-based eviction
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds)) // TTL as a safety net for writes made outside this service
+                .recordStats()
+                .buildAsync(); // A null result (unknown user) is not cached
+    }
+
     /**
      * This method is called automatically by Spring Security whenever it needs
      * to authenticate a user based on their username (email in this case).
@@ -27,17 +62,94 @@ public class MyUserDetailsService implements UserDetailsService { // Implements
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        // Fetch user from database using email
-        Users user = userrepo.findByEmail(email);
+        CompletableFuture<MyUserPrincipal> created = new CompletableFuture<>();
+        CompletableFuture<MyUserPrincipal> future = principals.get(email, (key, executor) -> created);
+        if (future == created) {
+            // This caller won the race for the miss: load on the current thread
+            try {
+                created.complete(loadPrincipal(email));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            }
+        }
+
+        MyUserPrincipal principal;
+        try {
+            principal = future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
 
         // If user is not found in the database
-        if(user == null) {
+        if(principal == null) {
             System.out.println("User Not Found"); // Print a debug message to console
             throw new UsernameNotFoundException("User Not Found"); // Throw an exception (Spring will catch it and fail authentication)
         }
 
-        // If user is found, wrap it inside a MyUserPrincipal object and return it
-        return new MyUserPrincipal(user);
+        return principal;
+    }
+
+    /**
+     * Called by DaoAuthenticationProvider after a successful login when the stored hash
+     * was made with weaker parameters than the current encoder; stores the new hash.
+     *
+     * @param userDetails the authenticated user
+     * @param newPassword the password re-encoded with the current parameters
+     * @return the user with the new password
+     */
+    @Override
+    @Transactional // Read and write on the primary, so the version checked is the current one
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        Users user = userrepo.findByEmail(userDetails.getUsername());
+        if (user == null) {
+            return userDetails; // Deleted meanwhile, nothing to upgrade
+        }
+        user.setPassword(newPassword);
+        Users saved = userrepo.save(user);
+        refresh(saved);
+        etags.written(saved.getEmail(), saved.getVersion());
+        readYourWrites.written(saved.getEmail());
+        return new MyUserPrincipal(saved);
+    }
+
+    // Cache loader: fetch user from database using email and wrap it inside a MyUserPrincipal object
+    private MyUserPrincipal loadPrincipal(String email) {
+        Users user = readYourWrites.readFor(email, () -> userrepo.findByEmail(email)); // Replica, unless written recently
+        return user == null ? null : new MyUserPrincipal(user);
+    }
+
+    /**
+     * Drops the cached principal so the next request reads the user again.
+     * Must be called after every write to the user so role and password changes apply immediately.
+     */
+    public void evict(String email) {
+        if (email != null) {
+            principals.synchronous().invalidate(email);
+        }
+    }
+
+    /**
+     * Replaces the cached principal with the state that was just written, so this node sees
+     * the new password, role and security stamp without another query.
+     */
+    public void refresh(Users saved) {
+        principals.put(saved.getEmail(), CompletableFuture.completedFuture(new MyUserPrincipal(saved)));
+    }
+
+    // Returns the principal only if it is already cached, never touches the database
+    public MyUserPrincipal getCachedPrincipal(String email) {
+        CompletableFuture<MyUserPrincipal> future = principals.getIfPresent(email);
+        return future == null || !future.isDone() || future.isCompletedExceptionally() ? null : future.join();
+    }
+
+    public CacheStats stats() {
+        return principals.synchronous().stats();
+    }
+
+    // Hit ratio, size and evictions as cache.*{cache="users.principals"}
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, principals, "users.principals");
     }
 
 }
@@ -0,0 +1,147 @@
+package com.securitydemo.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Dedicated, size-limited pool for password hashing work (login and registration).
+ *
+ * BCrypt is CPU bound and slow on purpose, so it must not run on the Tomcat request threads:
+ * a login burst would otherwise starve cheap authenticated requests. Work is queued in a bounded queue;
+ * when the queue is full {@link #submit} throws {@link RejectedExecutionException} right away so the
+ * caller can answer 503 instead of piling up more work.
+ */
+@Service
+public class PasswordHashingExecutor implements DisposableBean, MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+    private final int retryAfterSeconds;
+
+    // Metrics
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0);
+
+    public PasswordHashingExecutor(@Value("${auth.hashing.threads:0}") int threads,
+                                   @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${auth.hashing.retry-after-seconds:1}") int retryAfterSeconds,
+                                   @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors(); // One thread per core by default
+        // The pool size and queue still bound the CPU work; with virtual threads enabled (Java 21) the workers are virtual too
+        ThreadFactory threadFactory = virtualThreads
+                ? new VirtualThreadTaskExecutor("password-hash-").getVirtualThreadFactory()
+                : namedThreads();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Runs the task on the hashing pool.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                totalWaitNanos.add(startedAt - queuedAt);
+                try {
+                    return task.get();
+                } finally {
+                    long runNanos = System.nanoTime() - startedAt;
+                    totalRunNanos.add(runNanos);
+                    maxRunNanos.accumulate(runNanos);
+                    completed.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    // Average time a task spent running (dominated by the hash), in milliseconds
+    public double getAverageRunMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalRunNanos.sum() / 1_000_000.0 / count;
+    }
+
+    // Average time a task waited in the queue before starting, in milliseconds
+    public double getAverageWaitMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxRunMillis() {
+        return maxRunNanos.get() / 1_000_000.0;
+    }
+
+    // Pool pressure as auth.hashing.*; the hash time itself is auth.password.hash
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.hashing.queue", this, PasswordHashingExecutor::getQueueDepth)
+                .description("Hash jobs waiting for a thread").register(registry);
+        Gauge.builder("auth.hashing.active", this, PasswordHashingExecutor::getActiveCount)
+                .description("Hash jobs running").register(registry);
+        FunctionCounter.builder("auth.hashing.completed", this, PasswordHashingExecutor::getCompletedCount)
+                .description("Hash jobs finished").register(registry);
+        FunctionCounter.builder("auth.hashing.rejected", this, PasswordHashingExecutor::getRejectedCount)
+                .description("Hash jobs refused because the queue was full (503)").register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private static ThreadFactory namedThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
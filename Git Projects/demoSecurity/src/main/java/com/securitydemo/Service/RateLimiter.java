@@ -0,0 +1,89 @@
+package com.securitydemo.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Token bucket per key (client IP, email...), lock-free.
+ *
+ * Each key holds one AtomicLong: the time at which its bucket would be full again
+ * (the GCRA form of a token bucket). Taking a token is a single CAS, with no lock and no refill thread.
+ * Keys live in a bounded Caffeine map: idle keys expire, and a flood of new keys evicts old ones
+ * instead of growing the heap. An evicted key starts again with a full bucket, which is the same
+ * state it would have reached by being idle.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos; // Time to earn one token
+    private final long burstNanos; // Time to earn a full bucket
+    private final LongSupplier clock;
+    private final Cache<String, AtomicLong> buckets;
+
+    private final Counter allowed;
+    private final Counter rejected;
+
+    /**
+     * @param capacity   tokens in a full bucket (allowed burst)
+     * @param perMinute  tokens earned per minute
+     * @param maxKeys    keys tracked at most
+     * @param idle       keys untouched for this long are dropped
+     */
+    public RateLimiter(String name, int capacity, int perMinute, long maxKeys, Duration idle,
+                       MeterRegistry registry, LongSupplier clock) {
+        this.intervalNanos = Duration.ofMinutes(1).toNanos() / Math.max(perMinute, 1);
+        this.burstNanos = intervalNanos * Math.max(capacity, 1);
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idle)
+                .build();
+        this.allowed = decisions(registry, name, "allowed");
+        this.rejected = decisions(registry, name, "rejected");
+        Gauge.builder("auth.ratelimit.keys", buckets, Cache::estimatedSize)
+                .tag("key", name).description("Keys currently tracked by the rate limiter").register(registry);
+    }
+
+    public RateLimiter(String name, int capacity, int perMinute, long maxKeys, Duration idle, MeterRegistry registry) {
+        this(name, capacity, perMinute, maxKeys, idle, registry, System::nanoTime);
+    }
+
+    /**
+     * Takes one token for the key.
+     *
+     * @return 0 if allowed, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = clock.getAsLong();
+            long current = fullAt.get();
+            long start = current == Long.MIN_VALUE || current - now < 0 ? now : current; // A bucket never holds more than capacity
+            long next = start + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    private static Counter decisions(MeterRegistry registry, String name, String decision) {
+        return Counter.builder("auth.ratelimit")
+                .description("Rate limiter decisions for login and registration")
+                .tag("key", name)
+                .tag("decision", decision)
+                .register(registry);
+    }
+}
@@ -0,0 +1,79 @@
+package com.securitydemo.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Read-your-writes window for read replicas.
+ *
+ * Every write through the user services records the written email and the user who made it. For
+ * replica.read-your-writes-seconds afterwards, reads made by that user, and lookups of that email
+ * (e.g. the principal lookup at login), go to the primary so they never see a replica that lags behind.
+ * Without replicas configured nothing reads the window.
+ */
+@Service
+public class ReadYourWrites {
+
+    private static final ThreadLocal<String> SUBJECT = new ThreadLocal<>(); // Email a lookup is about, see readFor
+
+    private final ConcurrentMap<String, Boolean> recentWriters;
+
+    public ReadYourWrites(@Value("${replica.read-your-writes-seconds:5}") long windowSeconds) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds)) // Presence = still inside the window
+                .<String, Boolean>build()
+                .asMap();
+    }
+
+    // Records a write to the user with this email, made by the current user (if any)
+    public void written(String email) {
+        recentWriters.put(email, Boolean.TRUE);
+        String actor = currentUser();
+        if (actor != null) {
+            recentWriters.put(actor, Boolean.TRUE);
+        }
+    }
+
+    // Runs a lookup of the given user, so a recent write to it is read back from the primary
+    public <T> T readFor(String email, Supplier<T> read) {
+        String previous = SUBJECT.get();
+        SUBJECT.set(email);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                SUBJECT.remove();
+            } else {
+                SUBJECT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * True if the current read must go to the primary: the user it is about, or the user making it, wrote recently.
+     */
+    public boolean mustUsePrimary() {
+        if (recentWriters.isEmpty()) {
+            return false;
+        }
+        String subject = SUBJECT.get();
+        if (subject != null && recentWriters.containsKey(subject)) {
+            return true;
+        }
+        String actor = currentUser();
+        return actor != null && recentWriters.containsKey(actor);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+}
@@ -0,0 +1,117 @@
+package com.securitydemo.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.securitydemo.Entity.RefreshToken;
+import com.securitydemo.Repository.RefreshTokenRepository;
+
+/**
+ * Long-lived, single-use refresh tokens.
+ *
+ * A refresh costs one conditional UPDATE and one INSERT, no password hash. Tokens are random 256-bit strings;
+ * only their SHA-256 is stored. Each refresh uses up the presented token and returns the next one of the
+ * same family. Presenting a used token again means it was copied: the whole family is deleted and the
+ * user's access tokens are revoked, so both the thief and the client have to log in again.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    // Who the presented token belonged to, and the token that replaces it
+    public record Rotation(String email, String refreshToken) {
+    }
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private TokenRevocationList revocations;
+
+    private final SecureRandom random = new SecureRandom();
+    private final long lifetimeMillis;
+
+    public RefreshTokenService(@Value("${jwt.refresh-token-days:14}") long refreshTokenDays) {
+        this.lifetimeMillis = Duration.ofDays(refreshTokenDays).toMillis();
+    }
+
+    // Starts a new family, called after a successful login
+    @Transactional
+    public String issue(String email) {
+        return create(email, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Uses up the presented token and returns the next one of its family.
+     *
+     * @throws ResponseStatusException 401 if the token is unknown, expired or was already used
+     */
+    @Transactional(noRollbackFor = ResponseStatusException.class) // Keep the family deletion on reuse
+    public Rotation rotate(String token) {
+        String hash = hash(token);
+        if (refreshTokenRepository.markUsed(hash, System.currentTimeMillis()) == 1) {
+            RefreshToken used = refreshTokenRepository.findById(hash).orElseThrow();
+            return new Rotation(used.getEmail(), create(used.getEmail(), used.getFamily()));
+        }
+
+        RefreshToken known = refreshTokenRepository.findById(hash).orElse(null);
+        if (known != null && known.isUsed()) {
+            log.warn("Refresh token reuse detected for {}, ending its session and revoking the user's access tokens", known.getEmail());
+            refreshTokenRepository.deleteByFamily(known.getFamily());
+            revocations.revokeUser(known.getEmail());
+        }
+        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token");
+    }
+
+    // Ends the session the token belongs to (logout)
+    @Transactional
+    public void revokeFamily(String token) {
+        refreshTokenRepository.findById(hash(token))
+                .ifPresent(known -> refreshTokenRepository.deleteByFamily(known.getFamily()));
+    }
+
+    // Ends every session of the user (password change, delete)
+    @Transactional
+    public void revokeUser(String email) {
+        refreshTokenRepository.deleteByEmail(email);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-prune-interval-ms:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        refreshTokenRepository.deleteExpired(System.currentTimeMillis());
+    }
+
+    private String create(String email, String family) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(new RefreshToken(hash(token), email, family, System.currentTimeMillis() + lifetimeMillis));
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is mandatory on every JVM
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.securitydemo.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.SecretKey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Set of signing keys shared by every instance through a local key file.
+ *
+ * - New tokens are signed with the active key and carry its id in the "kid" header.
+ * - Verification looks the key up by "kid" in an in-memory map (keys are decoded once, when the file is read).
+ * - The active key is rotated on a schedule; superseded keys stay available for verification only
+ *   until they are older than the retention window, so no issued token is cut off by a rotation.
+ * - jwt.keys.algorithm picks HS256 (shared secret, the default), ES256 or EdDSA (Ed25519). With the
+ *   asymmetric ones the public keys are published as a JWK set (see jwks()), so other services can verify
+ *   tokens themselves. Changing the algorithm rotates to a key of the new kind; older keys still verify.
+ *
+ * The file is a java.util.Properties file: "active" names the signing key, and every key has
+ * "key.&lt;kid&gt;" (Base64 secret, or PKCS#8 private key), "public.&lt;kid&gt;" (Base64 X.509 public key,
+ * asymmetric keys only), "alg.&lt;kid&gt;" (HS256 when absent) and "created.&lt;kid&gt;" (epoch millis) entries.
+ * Instances pointing at the same file pick up each other's rotations; an unknown "kid" triggers a re-read.
+ * With an empty path the ring lives in memory only (tests, benchmarks).
+ */
+@Service
+public class SigningKeyRing extends LocatorAdapter<Key> {
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    private static final long RELOAD_ON_MISS_INTERVAL_MS = 1000; // Unknown kids re-read the file at most once a second
+
+    public static final Set<String> ALGORITHMS = Set.of("HS256", "ES256", "EdDSA");
+
+    // Signing and verification key are the same secret for HS256, the private and public key otherwise
+    private record KeyEntry(String kid, String algorithm, Key signingKey, Key verificationKey, long createdAt) {
+
+        boolean asymmetric() {
+            return verificationKey instanceof PublicKey;
+        }
+    }
+
+    /**
+     * Public keys of the ring as a JWK set document, with its ETag; rebuilt only when the keys change.
+     */
+    public record JwkSet(String json, String etag) {
+    }
+
+    private final Path file;
+    private final String algorithm;
+    private final Duration rotationInterval;
+    private final Duration retiredRetention;
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong lastReload = new AtomicLong();
+    // A lock rather than synchronized: file I/O happens while it is held and must not pin virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Immutable snapshots, replaced as a whole on reload/rotation
+    private volatile Map<String, KeyEntry> keys = Map.of();
+    private volatile KeyEntry active;
+    private volatile JwkSet jwkSet;
+    private volatile long loadedModifiedTime = -1;
+
+    @Autowired
+    public SigningKeyRing(@Value("${jwt.keys.file:}") String file,
+                          @Value("${jwt.keys.rotation-hours:24}") long rotationHours,
+                          @Value("${jwt.keys.retired-keep-hours:24}") long retiredKeepHours,
+                          @Value("${jwt.keys.algorithm:HS256}") String algorithm) {
+        if (!ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("jwt.keys.algorithm must be one of " + ALGORITHMS + ", not " + algorithm);
+        }
+        this.algorithm = algorithm;
+        this.file = file == null || file.isBlank() ? null : Path.of(file);
+        this.rotationInterval = Duration.ofHours(rotationHours);
+        this.retiredRetention = Duration.ofHours(retiredKeepHours);
+        if (this.file == null) {
+            KeyEntry first = newKey(System.currentTimeMillis());
+            install(List.of(first), first.kid());
+        } else {
+            rotateIfDue(); // Loads the file and creates the first key if there is none
+        }
+    }
+
+    // HS256 ring, for tests and benchmarks
+    public SigningKeyRing(String file, long rotationHours, long retiredKeepHours) {
+        this(file, rotationHours, retiredKeepHours, "HS256");
+    }
+
+    /**
+     * Signs the builder with the active key and sets the matching "kid" header.
+     */
+    public JwtBuilder signWith(JwtBuilder builder) {
+        KeyEntry signing = active; // Read once so kid and key always match
+        return builder.header().keyId(signing.kid()).and().signWith(signing.signingKey()); // Algorithm follows from the key
+    }
+
+    public String activeKid() {
+        return active.kid();
+    }
+
+    public String activeAlgorithm() {
+        return active.algorithm();
+    }
+
+    public JwkSet jwks() {
+        return jwkSet;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            return null; // Every token we issue has a kid, the parser rejects the token
+        }
+        KeyEntry entry = keys.get(kid);
+        if (entry == null && reloadAllowed()) {
+            // Probably signed by another instance that rotated before us
+            reload();
+            entry = keys.get(kid);
+        }
+        return entry == null ? null : entry.verificationKey();
+    }
+
+    /**
+     * Periodic maintenance: pick up changes written by other instances, then rotate if the active key is due.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys.check-interval-ms:60000}")
+    public void maintain() {
+        if (file == null) {
+            return;
+        }
+        try {
+            if (Files.exists(file) && Files.getLastModifiedTime(file).toMillis() != loadedModifiedTime) {
+                reload();
+            }
+            if (isRotationDue(System.currentTimeMillis())) {
+                rotateIfDue();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Key ring maintenance failed, keeping the current keys", e);
+        }
+    }
+
+    /**
+     * Adds a new active key right away, keeping the previous ones for verification.
+     */
+    public void rotate() {
+        if (file == null) {
+            lock.lock();
+            try {
+                List<KeyEntry> entries = new ArrayList<>(keys.values());
+                KeyEntry next = newKey(System.currentTimeMillis());
+                entries.add(next);
+                install(prune(entries, next, System.currentTimeMillis()), next.kid());
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        withFileLock(() -> {
+            readFile(); // Start from what other instances may have written
+            addKeyAndStore(System.currentTimeMillis());
+        });
+    }
+
+    private void rotateIfDue() {
+        withFileLock(() -> {
+            long now = System.currentTimeMillis();
+            readFile(); // Another instance may have rotated already while we waited for the lock
+            if (isRotationDue(now)) {
+                addKeyAndStore(now);
+            }
+        });
+    }
+
+    private boolean isRotationDue(long now) {
+        KeyEntry current = active;
+        return current == null || !current.algorithm().equals(algorithm) || now - current.createdAt() >= rotationInterval.toMillis();
+    }
+
+    // Must run under the file lock
+    private void addKeyAndStore(long now) {
+        List<KeyEntry> entries = new ArrayList<>(keys.values());
+        KeyEntry next = newKey(now);
+        entries.add(next);
+        List<KeyEntry> kept = prune(entries, next, now);
+        writeFile(kept, next.kid());
+        install(kept, next.kid());
+    }
+
+    // Drops superseded keys whose retention window has passed
+    private List<KeyEntry> prune(List<KeyEntry> entries, KeyEntry current, long now) {
+        entries.sort(Comparator.comparingLong(KeyEntry::createdAt));
+        List<KeyEntry> kept = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            KeyEntry entry = entries.get(i);
+            boolean superseded = i + 1 < entries.size();
+            long retiredAt = superseded ? entries.get(i + 1).createdAt() : Long.MAX_VALUE;
+            if (entry == current || !superseded || now - retiredAt < retiredRetention.toMillis()) {
+                kept.add(entry);
+            }
+        }
+        return kept;
+    }
+
+    private boolean reloadAllowed() {
+        if (file == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastReload.get();
+        return now - last >= RELOAD_ON_MISS_INTERVAL_MS && lastReload.compareAndSet(last, now);
+    }
+
+    private void reload() {
+        withFileLock(this::readFile);
+    }
+
+    // Must run under the file lock
+    private void readFile() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+            loadedModifiedTime = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read key file " + file, e);
+        }
+        List<KeyEntry> entries = new ArrayList<>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("key.")) {
+                String kid = name.substring("key.".length());
+                long createdAt = Long.parseLong(props.getProperty("created." + kid, "0"));
+                entries.add(decode(kid, props.getProperty("alg." + kid, "HS256"), props.getProperty(name),
+                        props.getProperty("public." + kid), createdAt)); // Decoded once here
+            }
+        }
+        String activeKid = props.getProperty("active");
+        if (activeKid != null && entries.stream().anyMatch(e -> e.kid().equals(activeKid))) {
+            install(entries, activeKid);
+        }
+    }
+
+    // Must run under the file lock
+    private void writeFile(List<KeyEntry> entries, String activeKid) {
+        Properties props = new Properties();
+        props.setProperty("active", activeKid);
+        for (KeyEntry entry : entries) {
+            props.setProperty("key." + entry.kid(), Base64.getEncoder().encodeToString(entry.signingKey().getEncoded()));
+            if (entry.asymmetric()) {
+                props.setProperty("public." + entry.kid(), Base64.getEncoder().encodeToString(entry.verificationKey().getEncoded()));
+            }
+            props.setProperty("alg." + entry.kid(), entry.algorithm());
+            props.setProperty("created." + entry.kid(), Long.toString(entry.createdAt()));
+        }
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            createOwnerOnly(tmp); // Before any key is written, so the keys are never readable by others
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "JWT signing keys - keep secret");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            loadedModifiedTime = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write key file " + file, e);
+        }
+    }
+
+    // Serialises reads and writes of the key file across threads and across instances sharing it
+    private void withFileLock(Runnable action) {
+        lock.lock();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock fileLock = channel.lock()) {
+                action.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot lock key file " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void install(List<KeyEntry> entries, String activeKid) {
+        Map<String, KeyEntry> byKid = new HashMap<>();
+        for (KeyEntry entry : entries) {
+            byKid.put(entry.kid(), entry);
+        }
+        keys = Map.copyOf(byKid);
+        active = byKid.get(activeKid);
+        jwkSet = toJwkSet(entries);
+    }
+
+    private KeyEntry newKey(long now) {
+        byte[] id = new byte[8];
+        random.nextBytes(id);
+        String kid = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        switch (algorithm) {
+            case "ES256": {
+                KeyPair pair = Jwks.CRV.P256.keyPair().random(random).build();
+                return new KeyEntry(kid, algorithm, pair.getPrivate(), pair.getPublic(), now);
+            }
+            case "EdDSA": {
+                KeyPair pair = Jwks.CRV.Ed25519.keyPair().random(random).build();
+                return new KeyEntry(kid, algorithm, pair.getPrivate(), pair.getPublic(), now);
+            }
+            default: {
+                byte[] secret = new byte[32]; // 256-bit key for HS256
+                random.nextBytes(secret);
+                SecretKey key = Keys.hmacShaKeyFor(secret);
+                return new KeyEntry(kid, algorithm, key, key, now);
+            }
+        }
+    }
+
+    private static KeyEntry decode(String kid, String algorithm, String key, String publicKey, long createdAt) {
+        if ("HS256".equals(algorithm)) {
+            SecretKey secret = Keys.hmacShaKeyFor(Base64.getDecoder().decode(key));
+            return new KeyEntry(kid, algorithm, secret, secret, createdAt);
+        }
+        try {
+            KeyFactory factory = KeyFactory.getInstance("ES256".equals(algorithm) ? "EC" : "Ed25519");
+            return new KeyEntry(kid, algorithm,
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key))),
+                    factory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey))),
+                    createdAt);
+        } catch (GeneralSecurityException | NullPointerException e) {
+            throw new IllegalStateException("Cannot decode " + algorithm + " key " + kid, e);
+        }
+    }
+
+    // {"keys":[...]} with the public keys, oldest first; empty for HS256 keys, which must stay secret
+    private static JwkSet toJwkSet(List<KeyEntry> entries) {
+        StringBuilder json = new StringBuilder("{\"keys\":[");
+        entries.stream()
+                .filter(KeyEntry::asymmetric)
+                .sorted(Comparator.comparingLong(KeyEntry::createdAt))
+                .forEach(entry -> {
+                    if (json.charAt(json.length() - 1) != '[') {
+                        json.append(',');
+                    }
+                    json.append(Jwks.json(Jwks.builder()
+                            .key((PublicKey) entry.verificationKey())
+                            .id(entry.kid())
+                            .algorithm(entry.algorithm())
+                            .publicKeyUse("sig")
+                            .build()));
+                });
+        String document = json.append("]}").toString();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(document.getBytes(StandardCharsets.UTF_8));
+            return new JwkSet(document, "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A leftover from an interrupted write may have other permissions, so it is replaced rather than reused
+    private static void createOwnerOnly(Path path) throws IOException {
+        Files.deleteIfExists(path);
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(path); // Not a POSIX file system, rely on the directory permissions
+        }
+    }
+}
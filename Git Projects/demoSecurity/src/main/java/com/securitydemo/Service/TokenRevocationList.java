@@ -0,0 +1,286 @@
+package com.securitydemo.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Revoked tokens, checked by JwtFilter on every authenticated request without any I/O.
+ *
+ * - By token id: a revoked "jti" is kept until the token would have expired anyway.
+ *   Lookups go through a Bloom filter first, so the common case (token not revoked) is a few bit reads;
+ *   only a possible hit is confirmed against the exact set.
+ * - By user: a "not before" time per email; tokens issued at or before it (iat_ms, millisecond precision) are rejected.
+ *   A login in the same second as the revocation therefore keeps working.
+ *   Used after a user is deleted or changes password. Kept for one token lifetime.
+ *
+ * Every revocation is appended to jwt.revocation.file and replayed at startup, so revocations survive a restart.
+ * Expired entries are pruned on a schedule, which also compacts the file and rebuilds the Bloom filter.
+ * Revocations are local to this instance. With an empty path they live in memory only (tests, benchmarks).
+ */
+@Service
+public class TokenRevocationList implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final Path file;
+    private final int expectedTokens;
+    private final long userRetentionMillis;
+    // A lock rather than synchronized: file I/O happens while it is held and must not pin virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>(); // jti -> token expiry (epoch millis)
+    private final Map<String, Long> notBefore = new ConcurrentHashMap<>(); // email -> revocation time (epoch millis)
+    private volatile BloomFilter bloom;
+
+    public TokenRevocationList(@Value("${jwt.revocation.file:}") String file,
+                               @Value("${jwt.revocation.expected-tokens:100000}") int expectedTokens,
+                               JWTService jwtService) {
+        this.file = file == null || file.isBlank() ? null : Path.of(file);
+        this.expectedTokens = expectedTokens;
+        this.userRetentionMillis = jwtService.getTokenValidityMillis();
+        this.bloom = new BloomFilter(expectedTokens);
+        if (this.file != null) {
+            load();
+            prune();
+        }
+    }
+
+    /**
+     * True if the verified token was revoked, either by its id or because its user was revoked after it was issued.
+     */
+    public boolean isRevoked(Claims claims) {
+        if (!notBefore.isEmpty()) {
+            Long cutoff = notBefore.get(claims.getSubject());
+            if (cutoff != null && issuedAtMillis(claims) <= cutoff) {
+                return true;
+            }
+        }
+        String jti = claims.getId();
+        return jti != null && bloom.mightContain(jti) && revokedTokens.containsKey(jti);
+    }
+
+    // Tokens from before the iat_ms claim only have "iat", truncated to the second: they lose any tie
+    private static long issuedAtMillis(Claims claims) {
+        if (claims.get(JWTService.ISSUED_AT_MILLIS_CLAIM) instanceof Number millis) {
+            return millis.longValue();
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt == null ? Long.MIN_VALUE : issuedAt.getTime();
+    }
+
+    // Revokes one token (logout, refresh token reuse); kept until the token expires
+    public void revokeToken(String jti, Date expiration) {
+        if (jti == null || expiration == null || expiration.getTime() <= System.currentTimeMillis()) {
+            return; // Nothing to remember, the token no longer verifies anyway
+        }
+        lock.lock();
+        try {
+            append("T " + jti + " " + expiration.getTime());
+            revokedTokens.put(jti, expiration.getTime());
+            bloom.add(jti);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Revokes every token of the user issued up to now
+    public void revokeUser(String email) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            append("N " + email + " " + now);
+            notBefore.merge(email, now, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int revokedTokenCount() {
+        return revokedTokens.size();
+    }
+
+    public int revokedUserCount() {
+        return notBefore.size();
+    }
+
+    /**
+     * Drops entries that can no longer match a valid token, rewrites the file with what is left
+     * and rebuilds the Bloom filter (bits cannot be removed from it).
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-interval-ms:60000}")
+    public void prune() {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            revokedTokens.values().removeIf(expiry -> expiry <= now);
+            notBefore.values().removeIf(cutoff -> cutoff + userRetentionMillis <= now);
+
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, revokedTokens.size() * 2));
+            revokedTokens.keySet().forEach(rebuilt::add);
+            bloom = rebuilt; // Revocations are added under the lock, so none is missed by the swap
+
+            if (file != null) {
+                rewrite();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.revocations", this, TokenRevocationList::revokedTokenCount)
+                .tag("kind", "token").description("Revoked token ids still within their lifetime").register(registry);
+        Gauge.builder("jwt.revocations", this, TokenRevocationList::revokedUserCount)
+                .tag("kind", "user").description("Users with a not-before cutoff").register(registry);
+    }
+
+    // Must run under the lock; written with DSYNC so an acknowledged revocation is on disk
+    private void append(String line) {
+        if (file == null) {
+            return;
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, line + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write revocation file " + file, e);
+        }
+    }
+
+    // Replays the file: "T <jti> <expiry millis>" and "N <email> <cutoff millis>" lines ("U" lines hold seconds, from older files)
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3 || !parts[2].matches("\\d+")) {
+                    continue; // Torn last line after a crash
+                }
+                if (parts[0].equals("T")) {
+                    revokedTokens.merge(parts[1], Long.parseLong(parts[2]), Math::max);
+                } else if (parts[0].equals("N")) {
+                    notBefore.merge(parts[1], Long.parseLong(parts[2]), Math::max);
+                } else if (parts[0].equals("U")) {
+                    notBefore.merge(parts[1], Long.parseLong(parts[2]) * 1000 + 999, Math::max); // Whole second, as before
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read revocation file " + file, e);
+        }
+    }
+
+    // Must run under the lock
+    private void rewrite() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> entry : revokedTokens.entrySet()) {
+                    writer.write("T " + entry.getKey() + " " + entry.getValue() + "\n");
+                }
+                for (Map.Entry<String, Long> entry : notBefore.entrySet()) {
+                    writer.write("N " + entry.getKey() + " " + entry.getValue() + "\n");
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Cannot compact revocation file {}, the old file is still complete", file, e);
+        }
+    }
+
+    /**
+     * Fixed-size Bloom filter over token ids, safe for concurrent adds and reads.
+     * Sized for the expected number of entries at a 1% false positive rate.
+     */
+    private static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final int bits;
+        private final int hashes;
+
+        BloomFilter(int expectedEntries) {
+            int n = Math.max(expectedEntries, 1);
+            long m = (long) Math.ceil(-n * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+            this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(m, 64));
+            this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        void add(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1; // Odd, so the probe sequence never collapses onto one bit
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                int index = bit >>> 6;
+                long current;
+                while (((current = words.get(index)) & mask) == 0 && !words.compareAndSet(index, current, current | mask)) {
+                    // Retry until the bit is set
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a over the chars, finished with a 64-bit mix so both halves are usable as independent hashes
+        private static long hash64(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
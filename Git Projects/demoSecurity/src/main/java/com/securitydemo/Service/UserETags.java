@@ -0,0 +1,126 @@
+package com.securitydemo.Service;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * In-memory validators for conditional GETs on users.
+ *
+ * - Row ETags are built from the row version; the last known version per email is kept here so a
+ *   matching If-None-Match can be answered with 304 without touching the database.
+ *   Versions of new rows start at their creation time (Users.seedVersion), so a re-created user never
+ *   matches a tag of the one it replaced.
+ * - The list ETag is built from a counter that every write through UserServiceImpl bumps.
+ *
+ * Validators only know about writes made on this instance, so they also expire after
+ * users.etag.ttl-seconds; this bounds how long another instance's write can go unnoticed.
+ */
+@Service
+public class UserETags {
+
+    private static final long UNKNOWN = -1;
+
+    // Version known for an email, and when it was last invalidated by a write
+    private record Validator(long version, long writtenAtNanos) {
+    }
+
+    private final ConcurrentMap<String, Validator> validators;
+    private final AtomicLong listVersion = new AtomicLong();
+    private final long instanceEpoch = System.currentTimeMillis(); // Tags from a previous run or another instance never match
+    private final long ttlMillis;
+
+    public UserETags(@Value("${users.etag.max-size:100000}") long maxSize,
+                     @Value("${users.etag.ttl-seconds:30}") long ttlSeconds) {
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("users.etag.ttl-seconds must be at least 1, not " + ttlSeconds); // List tags divide by it
+        }
+        this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.validators = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .<String, Validator>build()
+                .asMap();
+    }
+
+    // Call before reading the row, and pass the value to rowRead so a write that races with the read wins
+    public long readStarted() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns the ETag for the row if its version is known here, without any database access.
+     */
+    public String knownRowTag(String email, Set<String> fields) {
+        Validator validator = validators.get(email);
+        return validator == null || validator.version() == UNKNOWN ? null : rowTag(validator.version(), fields);
+    }
+
+    /**
+     * Remembers the version just read from the database and returns the row ETag.
+     * A write that happened after the read started is kept instead of the (older) version read here.
+     */
+    public String rowRead(String email, long version, Set<String> fields, long readStartedNanos) {
+        validators.compute(email, (key, current) ->
+                current != null && current.writtenAtNanos() - readStartedNanos > 0 ? current : new Validator(version, readStartedNanos));
+        return rowTag(version, fields);
+    }
+
+    /**
+     * Records a write. Pass the new version when it is known, or null to force the next read to hit the database.
+     */
+    public void written(String email, Long newVersion) {
+        validators.put(email, new Validator(newVersion == null ? UNKNOWN : newVersion, System.nanoTime()));
+        listVersion.incrementAndGet();
+    }
+
+    // Records writes of new rows only (bulk import): no row validator can be stale, only the list tags
+    public void listChanged() {
+        listVersion.incrementAndGet();
+    }
+
+    // Take it before reading the list: a write during the read then makes the tag stale, never wrong
+    public String currentListTag(Set<String> fields) {
+        return listTag(listVersion.get(), fields);
+    }
+
+    /**
+     * True if the If-None-Match header contains the tag (weak comparison, as HTTP allows for GET).
+     */
+    public static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null || tag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "<version>" for the full representation, "<version>-<field>+<field>" for a ?fields= selection
+    private static String rowTag(long version, Set<String> fields) {
+        return "\"" + version + fieldsSuffix(fields) + "\"";
+    }
+
+    private String listTag(long version, Set<String> fields) {
+        long bucket = System.currentTimeMillis() / ttlMillis; // Expires list tags after the TTL
+        return "\"L" + instanceEpoch + "." + bucket + "." + version + fieldsSuffix(fields) + "\"";
+    }
+
+    private static String fieldsSuffix(Set<String> fields) {
+        return fields == null || fields.isEmpty() ? "" : "-" + String.join("+", new TreeSet<>(fields));
+    }
+}
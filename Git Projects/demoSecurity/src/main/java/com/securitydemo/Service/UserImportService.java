@@ -0,0 +1,412 @@
+package com.securitydemo.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.securitydemo.Dto.AuditEvent;
+import com.securitydemo.Dto.ImportRowError;
+import com.securitydemo.Dto.ImportSummary;
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Entity.MyUserPrincipal;
+import com.securitydemo.Entity.Users;
+import com.securitydemo.Repository.UserRepository;
+
+/**
+ * Bulk user import from a streamed CSV or NDJSON body (POST /users/import).
+ *
+ * The body goes through a bounded pipeline, one line at a time:
+ * - parsing and validation on the request thread;
+ * - BCrypt on a pool of its own (users.import.hashing-threads), so an import never takes the queue slots
+ *   of logins and registrations. At most users.import.in-flight rows are hashed or waiting for a hash;
+ *   beyond that the request body is not read until the oldest row is done, which pushes back on the client;
+ * - INSERTs of users.import.batch-size rows per transaction, sent as JDBC batches.
+ * A chunk that fails (e.g. an email that already exists) is retried row by row, so only the offending rows
+ * are rejected. Rejected rows are written to the report as they are found, so nothing grows with the file.
+ * Rows with a role other than USER are rejected unless the caller has the ADMIN authority.
+ * One import runs at a time.
+ */
+@Service
+public class UserImportService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    public enum Format { CSV, NDJSON }
+
+    private static final List<String> CSV_COLUMNS = List.of("username", "email", "password", "role", "address1", "address2");
+    private static final int MAX_LINE_CHARS = 8192; // Longer lines are rejected without being buffered
+
+    // A validated row whose password has been hashed
+    private record Row(long line, Users user) {
+    }
+
+    private record Pending(long line, String email, Future<Users> hashed) {
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder encoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserETags etags;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private AuditLog audit;
+
+    private final TransactionTemplate transactions;
+    private final ThreadPoolExecutor hashingPool;
+    private final int inFlight;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public UserImportService(PlatformTransactionManager transactionManager,
+                             @Value("${users.import.hashing-threads:0}") int threads,
+                             @Value("${users.import.in-flight:256}") int inFlight,
+                             @Value("${users.import.batch-size:500}") int batchSize) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.inFlight = Math.max(inFlight, 1);
+        this.batchSize = Math.max(batchSize, 1);
+        // The queue never holds more than in-flight tasks: the reader waits before submitting more
+        this.hashingPool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.inFlight), runnable -> {
+                    Thread thread = new Thread(runnable, "import-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Imports the users of the body and writes the report as NDJSON to out:
+     * one ImportRowError per rejected row, then the ImportSummary.
+     *
+     * @throws RejectedExecutionException if another import is running
+     * @throws ResponseStatusException    400 if the CSV header is missing or invalid
+     */
+    public ImportSummary importUsers(InputStream in, Format format, OutputStream out) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new RejectedExecutionException("An import is already running");
+        }
+        try {
+            Run run = new Run(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), format, callerIsAdmin());
+            run.readHeader(); // Before anything is written, so a bad header can still be answered with 400
+            ImportSummary summary;
+            try (SequenceWriter report = objectMapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET) // The container closes the response stream
+                    .withRootValueSeparator("\n")
+                    .writeValues(out)) {
+                summary = run.execute(report);
+                report.write(summary);
+            }
+            out.write('\n');
+            log.info("Imported {} of {} users in {} ms", summary.imported(), summary.rows(), summary.millis());
+            return summary;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        hashingPool.shutdownNow();
+    }
+
+    // State of one import; only used by the request thread
+    private final class Run {
+
+        private final BufferedReader reader;
+        private final Format format;
+        private final boolean mayAssignRoles;
+        private final StringBuilder lineBuffer = new StringBuilder();
+        private final Deque<Pending> hashing = new ArrayDeque<>();
+        private final List<Row> chunk = new ArrayList<>();
+        private SequenceWriter report;
+        private List<String> columns;
+        private boolean lineTooLong;
+        private long lineNumber;
+        private long rows;
+        private long imported;
+        private long failed;
+
+        Run(BufferedReader reader, Format format, boolean mayAssignRoles) {
+            this.reader = reader;
+            this.format = format;
+            this.mayAssignRoles = mayAssignRoles;
+        }
+
+        // The first non-blank line of a CSV body names the columns
+        void readHeader() throws IOException {
+            if (format != Format.CSV) {
+                return;
+            }
+            String text;
+            while ((text = nextLine()) != null) {
+                lineNumber++;
+                if (!text.isBlank()) {
+                    columns = header(text);
+                    return;
+                }
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing CSV header");
+        }
+
+        ImportSummary execute(SequenceWriter report) throws IOException {
+            this.report = report;
+            long start = System.currentTimeMillis();
+            String text;
+            while ((text = nextLine()) != null) {
+                lineNumber++;
+                if (text.isBlank() && !lineTooLong) {
+                    continue;
+                }
+                rows++;
+                Users user = null;
+                try {
+                    if (lineTooLong) {
+                        throw new IllegalArgumentException("Line longer than " + MAX_LINE_CHARS + " characters");
+                    }
+                    user = format == Format.CSV ? fromCsv(text) : objectMapper.readValue(text, Users.class);
+                    validate(user, mayAssignRoles);
+                } catch (IllegalArgumentException | JsonProcessingException e) {
+                    reject(lineNumber, user == null ? null : user.getEmail(),
+                            e instanceof JsonProcessingException json ? "Invalid JSON: " + json.getOriginalMessage() : e.getMessage());
+                    continue;
+                }
+                submit(lineNumber, user);
+            }
+            while (!hashing.isEmpty()) {
+                collect();
+            }
+            flush();
+            return new ImportSummary(rows, imported, failed, System.currentTimeMillis() - start);
+        }
+
+        private void submit(long line, Users user) throws IOException {
+            if (hashing.size() >= inFlight) {
+                collect(); // Back-pressure: wait for the oldest hash before reading further
+            }
+            Future<Users> hashed = hashingPool.submit(() -> {
+                user.setPassword(encoder.encode(user.getPassword()));
+                return user;
+            });
+            hashing.add(new Pending(line, user.getEmail(), hashed));
+        }
+
+        private void collect() throws IOException {
+            Pending pending = hashing.poll();
+            try {
+                chunk.add(new Row(pending.line(), pending.hashed().get()));
+            } catch (ExecutionException e) {
+                reject(pending.line(), pending.email(), "Password cannot be hashed");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            }
+            if (chunk.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        // One transaction for the chunk; if it fails, one transaction per row to find the rows at fault
+        private void flush() throws IOException {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactions.executeWithoutResult(status -> userRepository.saveAll(chunk.stream().map(row -> copy(row.user())).toList()));
+                for (Row row : chunk) {
+                    written(row);
+                }
+            } catch (DataIntegrityViolationException e) {
+                for (Row row : chunk) {
+                    try {
+                        transactions.executeWithoutResult(status -> userRepository.saveAndFlush(copy(row.user())));
+                        written(row);
+                    } catch (DataIntegrityViolationException rowFailure) {
+                        reject(row.line(), row.user().getEmail(), "User already exists or a value is too long");
+                    }
+                }
+            }
+            etags.listChanged();
+            chunk.clear();
+        }
+
+        private void written(Row row) {
+            imported++;
+            readYourWrites.written(row.user().getEmail());
+            searchIndex.put(UserResponse.from(row.user()));
+            audit.userChanged(AuditEvent.Type.USER_IMPORTED, row.user().getEmail(), "line " + row.line());
+        }
+
+        private void reject(long line, String email, String error) throws IOException {
+            failed++;
+            report.write(new ImportRowError(line, email, error));
+        }
+
+        // Next line without its terminator, null at the end of the body. Characters past MAX_LINE_CHARS are
+        // skipped and flagged in lineTooLong, so one bad line cannot make the buffer grow.
+        private String nextLine() throws IOException {
+            lineBuffer.setLength(0);
+            lineTooLong = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            while (c != -1 && c != '\n') {
+                if (lineBuffer.length() < MAX_LINE_CHARS) {
+                    lineBuffer.append((char) c);
+                } else {
+                    lineTooLong = true;
+                }
+                c = reader.read();
+            }
+            int last = lineBuffer.length() - 1;
+            if (last >= 0 && lineBuffer.charAt(last) == '\r') {
+                lineBuffer.setLength(last);
+            }
+            return lineBuffer.toString();
+        }
+
+        private List<String> header(String text) {
+            if (lineTooLong) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header too long");
+            }
+            List<String> names = new ArrayList<>();
+            for (String name : splitCsv(text)) {
+                String column = name.trim().toLowerCase(Locale.ROOT);
+                if (!CSV_COLUMNS.contains(column) || names.contains(column)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown or repeated CSV column: " + name);
+                }
+                names.add(column);
+            }
+            if (!names.contains("email") || !names.contains("password")) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The CSV header must have email and password columns");
+            }
+            return names;
+        }
+
+        private Users fromCsv(String text) {
+            List<String> values = splitCsv(text);
+            if (values.size() != columns.size()) {
+                throw new IllegalArgumentException("Expected " + columns.size() + " columns, found " + values.size());
+            }
+            Users user = new Users();
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i).isEmpty() ? null : values.get(i);
+                switch (columns.get(i)) {
+                    case "username" -> user.setUsername(value);
+                    case "email" -> user.setEmail(value);
+                    case "password" -> user.setPassword(value);
+                    case "role" -> user.setRole(value);
+                    case "address1" -> user.setAddress1(value);
+                    default -> user.setAddress2(value);
+                }
+            }
+            return user;
+        }
+    }
+
+    private static void validate(Users user, boolean mayAssignRoles) {
+        if (user.getEmail() == null || user.getEmail().indexOf('@') <= 0) {
+            throw new IllegalArgumentException("Missing or invalid email");
+        }
+        if (user.getPassword() == null || user.getPassword().isEmpty()) {
+            throw new IllegalArgumentException("Missing password");
+        }
+        if (!mayAssignRoles && user.getRole() != null && !MyUserPrincipal.DEFAULT_ROLE.equals(user.getRole())) {
+            throw new IllegalArgumentException("Only callers with the " + MyUserPrincipal.ADMIN_ROLE + " authority can assign a role");
+        }
+    }
+
+    // Read on the request thread, where the security context of the import request is set
+    private static boolean callerIsAdmin() {
+        Authentication caller = SecurityContextHolder.getContext().getAuthentication();
+        return caller != null && caller.getAuthorities().stream()
+                .anyMatch(authority -> MyUserPrincipal.ADMIN_ROLE.equals(authority.getAuthority()));
+    }
+
+    // A fresh, new instance per attempt: a rolled back persist has already marked the previous one as existing
+    private static Users copy(Users user) {
+        return new Users(user.getUsername(), user.getEmail(), user.getPassword(), user.getRole(), user.getAddress1(), user.getAddress2());
+    }
+
+    // Fields of one CSV line: comma separated, optionally in double quotes with "" for a quote (no line breaks in fields)
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,484 @@
+package com.securitydemo.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.securitydemo.Dto.UserPatch;
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Dto.UserSearchResult;
+import com.securitydemo.Repository.UserRepository;
+
+/**
+ * In-memory index behind GET /users/search: case-insensitive matches on username, email, address1 and address2.
+ *
+ * Every user gets a slot, listed under each trigram of its lowercased fields and under a prefix gram
+ * (a marker plus two characters) at the start of every word. A query of three or more characters is found
+ * anywhere in a field, a query of two characters at the start of a word. The posting lists of the query's
+ * grams are intersected starting from the shortest one and the remaining users are checked and ranked:
+ * whole field, then field prefix, then word prefix, then substring; username before email before the addresses;
+ * shorter values first. At most users.search.max-candidates users are checked, so a query that matches a large
+ * part of the table stays fast and its result is flagged as truncated.
+ *
+ * The index is loaded from the database when the application is ready, before it reports readiness, and is
+ * kept in sync by the writes of UserServiceImpl and UserImportService. It only sees writes made on this
+ * instance; users.search.reload-cron reloads it for deployments where several instances write.
+ * Updated and deleted users leave dead slots. Once they reach a quarter of the index, a scheduled job
+ * (users.search.compact-interval-ms) rebuilds it without them off the request path, replaying the writes made
+ * meanwhile the same way a reload does; requests only wait for the copy of the slots and the final swap.
+ */
+@Service
+public class UserSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private static final char WORD_START = '\u0002'; // Never part of a lowercased value
+    private static final int MIN_QUERY_LENGTH = 2;
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+
+    // A user and its searchable fields, lowercased, in ranking order: username, email, address1, address2
+    private record Entry(UserResponse user, String[] fields) {
+    }
+
+    private record Hit(long score, UserResponse user) {
+    }
+
+    // Worst hit first: lower score, then later email
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingLong(Hit::score)
+            .thenComparing((Hit hit) -> hit.user().email(), Comparator.reverseOrder());
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // One rebuild (reload or compaction) at a time; held while the table streams over JDBC, where a monitor would pin a virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final TransactionTemplate transactions;
+    private final boolean enabled;
+    private final int maxLimit;
+    private final int maxCandidates;
+    private Index index = new Index();
+    private List<Consumer<Index>> pending; // Changes made while a rebuild runs, replayed on the new index
+    private volatile boolean loaded;
+
+    public UserSearchIndex(PlatformTransactionManager transactionManager,
+                           @Value("${users.search.enabled:true}") boolean enabled,
+                           @Value("${users.search.max-limit:100}") int maxLimit,
+                           @Value("${users.search.max-candidates:10000}") int maxCandidates) {
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxLimit = Math.max(maxLimit, 1);
+        this.maxCandidates = Math.max(maxCandidates, 1);
+    }
+
+    /**
+     * Users matching the query, best match first.
+     *
+     * @throws ResponseStatusException 400 if the query is shorter than two characters,
+     *                                 503 if the index is disabled or not loaded yet
+     */
+    public UserSearchResult search(String query, int limit) {
+        if (!enabled || !loaded) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, enabled ? "Search index is loading" : "Search is disabled");
+        }
+        String normalized = query == null ? "" : query.strip().toLowerCase(Locale.ROOT);
+        if (normalized.length() < MIN_QUERY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query must have at least " + MIN_QUERY_LENGTH + " characters");
+        }
+        long[] grams = normalized.length() < 3
+                ? new long[] { gram(WORD_START, normalized.charAt(0), normalized.charAt(1)) }
+                : IntStream.rangeClosed(0, normalized.length() - 3)
+                        .mapToLong(i -> gram(normalized.charAt(i), normalized.charAt(i + 1), normalized.charAt(i + 2)))
+                        .distinct()
+                        .toArray();
+        int capped = Math.max(1, Math.min(limit, maxLimit));
+        lock.readLock().lock();
+        try {
+            return index.search(normalized, grams, capped, maxCandidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Created or fully replaced user
+    public void put(UserResponse user) {
+        change(index -> index.put(user));
+    }
+
+    // Applies the fields present in the patch to the indexed user; a user not indexed here is left to the next reload
+    public void patch(String email, UserPatch patch, Long newVersion) {
+        change(index -> {
+            UserResponse current = index.get(email);
+            if (current != null) {
+                index.put(new UserResponse(
+                        patch.username() != null ? patch.username() : current.username(),
+                        email,
+                        patch.role() != null ? patch.role() : current.role(),
+                        patch.address1() != null ? patch.address1() : current.address1(),
+                        patch.address2() != null ? patch.address2() : current.address2(),
+                        newVersion));
+            }
+        });
+    }
+
+    public void remove(String email) {
+        change(index -> index.remove(email));
+    }
+
+    /**
+     * Reads the whole table into a new index and switches to it. Writes made while the table is read are
+     * applied to both indexes, so none is lost whichever side of the read they land on.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${users.search.reload-cron:-}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                transactions.executeWithoutResult(status -> {
+                    try (Stream<UserResponse> users = userRepository.streamAllOrderByEmail()) {
+                        load(users);
+                    }
+                });
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pending = null; // Already consumed by load, unless the read failed
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+        log.info("Search index loaded in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Rebuilds the index without the slots of updated and deleted users once they make up a quarter of it.
+     * Runs on the scheduler: only copying the slot array and swapping in the result hold the write lock.
+     */
+    @Scheduled(fixedDelayString = "${users.search.compact-interval-ms:10000}")
+    public void compact() {
+        if (!enabled || !rebuildLock.tryLock()) {
+            return; // A reload builds a compact index anyway
+        }
+        try {
+            Entry[] snapshot;
+            lock.writeLock().lock();
+            try {
+                if (!loaded || !index.needsCompaction()) {
+                    return;
+                }
+                snapshot = index.entries();
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                load(Arrays.stream(snapshot).filter(Objects::nonNull).map(Entry::user));
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pending = null; // Already consumed by load, unless the rebuild failed
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Replaces the content of the index with the given users
+    public void load(Stream<UserResponse> users) {
+        Index fresh = new Index();
+        users.forEach(fresh::put);
+        fresh.trim();
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.forEach(change -> change.accept(fresh));
+                pending = null;
+            }
+            index = fresh;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void change(Consumer<Index> change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Three characters packed into one key
+    private static long gram(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    private static boolean isWordStart(String value, int at) {
+        return at == 0 || !Character.isLetterOrDigit(value.charAt(at - 1));
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT); // Same instance when already lowercase
+    }
+
+    /**
+     * Higher is better: match kind (3 whole field, 2 field prefix, 1 word prefix, 0 substring), then field,
+     * then shorter value. -1 if no field contains the query, or only not at a word start when wordStartOnly.
+     */
+    private static long score(String[] fields, String query, boolean wordStartOnly) {
+        long best = -1;
+        for (int field = 0; field < fields.length; field++) {
+            String value = fields[field];
+            for (int at = value.indexOf(query); at >= 0; at = value.indexOf(query, at + 1)) {
+                int kind = at == 0 ? (value.length() == query.length() ? 3 : 2) : isWordStart(value, at) ? 1 : 0;
+                if (kind > 0 || !wordStartOnly) {
+                    best = Math.max(best, ((long) kind << 40) | ((long) (fields.length - field) << 32) | (Integer.MAX_VALUE - value.length()));
+                }
+                if (kind > 0) {
+                    break; // Later occurrences can only be word prefixes or substrings
+                }
+            }
+        }
+        return best;
+    }
+
+    // Slots listed under one gram, in increasing order since slots are handed out in increasing order
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size > 0 && slots[size - 1] == slot) {
+                return; // Gram repeated within the same user
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size + (size >> 1) + 1);
+            }
+            slots[size++] = slot;
+        }
+
+        void trim() {
+            if (size < slots.length) {
+                slots = Arrays.copyOf(slots, size);
+            }
+        }
+    }
+
+    // Open-addressing map from gram to posting list; loading adds tens of millions of grams, which boxed keys would slow down
+    private static final class GramTable {
+        private long[] grams = new long[1 << 12];
+        private Postings[] lists = new Postings[1 << 12];
+        private int size;
+
+        Postings get(long gram) {
+            int mask = grams.length - 1;
+            for (int i = hash(gram) & mask; lists[i] != null; i = (i + 1) & mask) {
+                if (grams[i] == gram) {
+                    return lists[i];
+                }
+            }
+            return null;
+        }
+
+        Postings getOrAdd(long gram) {
+            int mask = grams.length - 1;
+            int i = hash(gram) & mask;
+            for (; lists[i] != null; i = (i + 1) & mask) {
+                if (grams[i] == gram) {
+                    return lists[i];
+                }
+            }
+            if ((size + 1) * 2 > grams.length) { // Keep at most half full
+                grow();
+                return getOrAdd(gram);
+            }
+            size++;
+            grams[i] = gram;
+            lists[i] = new Postings();
+            return lists[i];
+        }
+
+        void trim() {
+            for (Postings list : lists) {
+                if (list != null) {
+                    list.trim();
+                }
+            }
+        }
+
+        private void grow() {
+            long[] oldGrams = grams;
+            Postings[] oldLists = lists;
+            grams = new long[oldGrams.length * 2];
+            lists = new Postings[oldLists.length * 2];
+            int mask = grams.length - 1;
+            for (int old = 0; old < oldGrams.length; old++) {
+                if (oldLists[old] != null) {
+                    int i = hash(oldGrams[old]) & mask;
+                    while (lists[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    grams[i] = oldGrams[old];
+                    lists[i] = oldLists[old];
+                }
+            }
+        }
+
+        private static int hash(long gram) {
+            return (int) ((gram * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+
+    // Entries, posting lists and slot per email; only ever replaced as a whole (reload, compact)
+    private static final class Index {
+        private final GramTable postings = new GramTable();
+        private final Map<String, Integer> slots = new HashMap<>();
+        private Entry[] entries = new Entry[1024];
+        private int size;
+        private int dead;
+
+        UserResponse get(String email) {
+            Integer slot = slots.get(email);
+            return slot == null ? null : entries[slot].user();
+        }
+
+        void put(UserResponse user) {
+            remove(user.email());
+            String[] fields = { lower(user.username()), lower(user.email()), lower(user.address1()), lower(user.address2()) };
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            int slot = size++;
+            entries[slot] = new Entry(user, fields);
+            slots.put(user.email(), slot);
+            for (String value : fields) {
+                for (int i = 0; i + 2 <= value.length(); i++) {
+                    if (i + 3 <= value.length()) {
+                        add(gram(value.charAt(i), value.charAt(i + 1), value.charAt(i + 2)), slot);
+                    }
+                    if (isWordStart(value, i)) {
+                        add(gram(WORD_START, value.charAt(i), value.charAt(i + 1)), slot);
+                    }
+                }
+            }
+        }
+
+        void remove(String email) {
+            Integer slot = slots.remove(email);
+            if (slot != null) {
+                entries[slot] = null; // Posting lists keep the slot until compaction
+                dead++;
+            }
+        }
+
+        private void add(long gram, int slot) {
+            postings.getOrAdd(gram).add(slot);
+        }
+
+        void trim() {
+            postings.trim();
+        }
+
+        boolean needsCompaction() {
+            return dead >= MIN_DEAD_TO_COMPACT && dead * 4 >= size;
+        }
+
+        // Copy of the slots in use; removed users are null
+        Entry[] entries() {
+            return Arrays.copyOf(entries, size);
+        }
+
+        UserSearchResult search(String query, long[] grams, int limit, int maxCandidates) {
+            Postings[] lists = new Postings[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return new UserSearchResult(List.of(), false); // No user has this gram
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            Postings shortest = lists[0];
+            int[] cursors = new int[lists.length]; // Candidates come in increasing order, so the other lists are only searched forward
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+            int candidates = Math.min(shortest.size, maxCandidates);
+            candidates:
+            for (int i = 0; i < candidates; i++) {
+                int slot = shortest.slots[i];
+                Entry entry = entries[slot];
+                if (entry == null) {
+                    continue;
+                }
+                for (int list = 1; list < lists.length; list++) {
+                    int found = Arrays.binarySearch(lists[list].slots, cursors[list], lists[list].size, slot);
+                    if (found < 0) {
+                        cursors[list] = -found - 1;
+                        continue candidates;
+                    }
+                    cursors[list] = found + 1;
+                }
+                long score = score(entry.fields(), query, query.length() < 3);
+                if (score < 0 || best.size() == limit && score < best.peek().score()) {
+                    continue; // No match, or worse than every hit kept
+                }
+                best.offer(new Hit(score, entry.user()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(WORST_FIRST.reversed());
+            return new UserSearchResult(hits.stream().map(Hit::user).toList(), shortest.size > maxCandidates);
+        }
+    }
+}
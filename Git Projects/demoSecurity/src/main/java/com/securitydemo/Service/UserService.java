@@ -1,17 +1,30 @@
 package com.securitydemo.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+import com.securitydemo.Dto.UserPage;
+import com.securitydemo.Dto.UserPatch;
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Dto.UserSearchResult;
 import com.securitydemo.Entity.Users;
 
 
 public interface UserService {
 
 	List<Users>getAllUsers();
+	List<UserResponse> getAllUsers(Set<String> fields);
+	UserPage getUsersPage(String cursor, int size, Set<String> fields);
+	void exportUsers(OutputStream out) throws IOException;
+	UserSearchResult searchUsers(String query, int limit);
 	Optional<Users> getUserByEmail(String email);
+	Optional<UserResponse> getUserByEmail(String email, Set<String> fields);
 	Users saveUser(Users user);
-	Users  updateUser(Users user);
+	Users  updateUser(Users user, Long expectedVersion);
+	Long patchUser(String email, UserPatch patch, Long expectedVersion);
 	void deleteUserByEmail(String email);
 
 }
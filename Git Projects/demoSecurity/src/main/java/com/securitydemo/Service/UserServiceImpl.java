@@ -1,17 +1,46 @@
 package com.securitydemo.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.securitydemo.Dto.AuditEvent;
+import com.securitydemo.Dto.TokenResponse;
+import com.securitydemo.Dto.UserPage;
+import com.securitydemo.Dto.UserPatch;
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Dto.UserSearchResult;
+import com.securitydemo.Entity.MyUserPrincipal;
 import com.securitydemo.Entity.Users;
 import com.securitydemo.Repository.UserRepository;
+
+import io.jsonwebtoken.Claims;
 @Service
 public class UserServiceImpl implements UserService {
 	@Autowired
@@ -20,49 +49,293 @@ public class UserServiceImpl implements UserService {
 	private AuthenticationManager authmanager;
 	@Autowired
 	private JWTService jwtService;
+	@Autowired
+	private MyUserDetailsService userDetailsService;
+	@Autowired
+	private PasswordHashingExecutor hashingExecutor;
+	@Autowired
+	private PasswordEncoder encoder;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private UserETags etags;
+	@Autowired
+	private VerifiedTokenCache tokenCache;
+	@Autowired
+	private TokenRevocationList revocations;
+	@Autowired
+	private RefreshTokenService refreshTokens;
+	@Autowired
+	private ReadYourWrites readYourWrites;
+	@Autowired
+	private UserSearchIndex searchIndex;
+	@Autowired
+	private AuditLog audit;
 
-	private BCryptPasswordEncoder encoder= new BCryptPasswordEncoder(12);	
+	@Value("${users.page.max-size:500}")
+	private int maxPageSize;
 	
 	@Override
+	@Transactional(readOnly = true)
 	public List<Users> getAllUsers() {
 		return userRepository.findAll() ;
 	}
 
+	// Only the requested columns are selected; the password is never part of the result
+	@Override
+	@Transactional(readOnly = true)
+	public List<UserResponse> getAllUsers(Set<String> fields) {
+		return userRepository.findFields(checkFields(fields), null, 0);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public UserPage getUsersPage(String cursor, int size, Set<String> fields) {
+		int limit = Math.max(1, Math.min(size, maxPageSize)); // Cap the page size
+		String after = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+		Set<String> selected = checkFields(fields);
+		if (!selected.isEmpty() && !selected.contains("email")) {
+			selected = new HashSet<>(selected);
+			selected.add("email"); // Needed to build the next cursor
+		}
+		// Fetch one extra row to know whether another page exists, without a COUNT(*)
+		List<UserResponse> rows = userRepository.findFields(selected, after, limit + 1);
+		if (rows.size() <= limit) {
+			return new UserPage(rows, null);
+		}
+		List<UserResponse> page = rows.subList(0, limit);
+		return new UserPage(page, encodeCursor(page.get(limit - 1).email()));
+	}
+
+	/**
+	 * Writes every user as one JSON document per line (NDJSON).
+	 * Rows are read through a database cursor as projections (no managed entities), so memory stays flat.
+	 */
 	@Override
+	@Transactional(readOnly = true)
+	public void exportUsers(OutputStream out) throws IOException {
+		try (Stream<UserResponse> users = userRepository.streamAllOrderByEmail();
+				SequenceWriter writer = objectMapper.writer()
+						.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET) // The container closes the response stream
+						.withRootValueSeparator("\n")
+						.writeValues(out)) {
+			for (UserResponse user : (Iterable<UserResponse>) users::iterator) {
+				writer.write(user);
+			}
+		}
+		out.write('\n');
+	}
+
+	// Rejects unknown ?fields= names; null means all public fields
+	private static Set<String> checkFields(Set<String> fields) {
+		if (fields == null) {
+			return Set.of();
+		}
+		for (String field : fields) {
+			if (!UserResponse.FIELDS.contains(field)) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + field);
+			}
+		}
+		return fields;
+	}
+
+	// The cursor is the last email of the previous page, Base64 encoded so clients treat it as opaque
+	private static String encodeCursor(String email) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(email.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String decodeCursor(String cursor) {
+		try {
+			return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+		}
+	}
+
+	// Served from the in-memory index, no database access
+	@Override
+	public UserSearchResult searchUsers(String query, int limit) {
+		return searchIndex.search(query, limit);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
 	public Optional<Users> getUserByEmail(String email) {
 //		if(userRepository.findById(email).isEmpty()) {
 //			throw new UserNotFoundException("User Not Found By Provided Email");
 //
 //		}
-		return userRepository.findById(email);
+		return readYourWrites.readFor(email, () -> userRepository.findById(email));
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<UserResponse> getUserByEmail(String email, Set<String> fields) {
+		return readYourWrites.readFor(email, () -> userRepository.findFieldsByEmail(email, checkFields(fields)));
 	}
 
 	@Override
 	public Users saveUser(Users user) {
 		user.setPassword(encoder.encode(user.getPassword()));
-		return userRepository.save(user);
+		Users saved = userRepository.save(user);
+		userDetailsService.refresh(saved);
+		etags.written(saved.getEmail(), saved.getVersion());
+		readYourWrites.written(saved.getEmail());
+		searchIndex.put(UserResponse.from(saved));
+		audit.userChanged(AuditEvent.Type.USER_CREATED, saved.getEmail(), null);
+		return saved;
 	}
 
+	/**
+	 * Full replace of an existing user. The row is read and the body copied onto it, so the
+	 * UPDATE only contains changed columns (@DynamicUpdate) and carries the version check.
+	 * A missing password keeps the current one; a new one is hashed.
+	 *
+	 * @param expectedVersion version the client last saw (If-Match), or null for an unconditional update
+	 */
 	@Override
-	public Users updateUser(Users user) {
-		return userRepository.save(user);
+	@Transactional
+	public Users updateUser(Users user, Long expectedVersion) {
+		Users existing = userRepository.findById(user.getEmail())
+				.orElseThrow(() -> new RuntimeException("User not found with provided email : " + user.getEmail()));
+		if (expectedVersion != null && existing.getVersion() != expectedVersion) {
+			throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User was modified by someone else");
+		}
+		boolean roleChanged = !Objects.equals(user.getRole(), existing.getRole());
+		existing.setUsername(user.getUsername());
+		existing.setRole(user.getRole());
+		existing.setAddress1(user.getAddress1());
+		existing.setAddress2(user.getAddress2());
+		boolean passwordChanged = user.getPassword() != null && !user.getPassword().equals(existing.getPassword());
+		if (passwordChanged) {
+			existing.setPassword(encoder.encode(user.getPassword()));
+		}
+		Users saved = userRepository.saveAndFlush(existing); // Flush now so a version conflict surfaces here
+		userDetailsService.refresh(saved);
+		etags.written(saved.getEmail(), saved.getVersion());
+		readYourWrites.written(saved.getEmail());
+		searchIndex.put(UserResponse.from(saved));
+		audit.userChanged(AuditEvent.Type.USER_UPDATED, saved.getEmail(), passwordChanged ? "password" : null);
+		if (passwordChanged || roleChanged) {
+			revokeSessions(saved.getEmail()); // Tokens issued with the old password or role stop working
+		}
+		return saved;
 	}
 
+	/**
+	 * Partial update in a single UPDATE statement that only touches the fields present in the patch.
+	 *
+	 * @param expectedVersion version the client last saw (If-Match), or null for an unconditional update
+	 * @return the new version of the user
+	 */
 	@Override
+	@Transactional
+	public Long patchUser(String email, UserPatch patch, Long expectedVersion) {
+		Map<String, Object> changes = new LinkedHashMap<>();
+		putIfPresent(changes, "username", patch.username());
+		putIfPresent(changes, "role", patch.role());
+		putIfPresent(changes, "address1", patch.address1());
+		putIfPresent(changes, "address2", patch.address2());
+		if (patch.password() != null) {
+			changes.put("password", encoder.encode(patch.password()));
+		}
+
+		Long newVersion = userRepository.patch(email, changes, expectedVersion);
+		if (newVersion == null) {
+			if (!userRepository.existsById(email)) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with provided email : " + email);
+			}
+			throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User was modified by someone else");
+		}
+		// As in updateUser: this node sees the new role and security stamp at once, even for stateless tokens
+		userRepository.findById(email).ifPresent(userDetailsService::refresh);
+		etags.written(email, newVersion);
+		readYourWrites.written(email);
+		searchIndex.patch(email, patch, newVersion);
+		audit.userChanged(AuditEvent.Type.USER_PATCHED, email, String.join(",", changes.keySet())); // Names only, never values
+		if (patch.password() != null || patch.role() != null) {
+			revokeSessions(email); // Tokens issued with the old password or role stop working
+		}
+		return newVersion;
+	}
+
+	private static void putIfPresent(Map<String, Object> changes, String column, Object value) {
+		if (value != null) {
+			changes.put(column, value);
+		}
+	}
+
+	// One read-write transaction: the existence check must see the primary, not a replica that may lag behind
+	@Override
+	@Transactional
 	public void deleteUserByEmail(String email) {
 		if (userRepository.existsById(email)) {
 			userRepository.deleteById(email);
+			userDetailsService.evict(email);
+			etags.written(email, null);
+			readYourWrites.written(email);
+			searchIndex.remove(email);
+			audit.userChanged(AuditEvent.Type.USER_DELETED, email, null);
+			revokeSessions(email); // Cut off tokens the deleted user still holds
 		} else {
 			throw new RuntimeException("User not found with provided email : " + email);
 		}
 	}
 
-	public String verify(Users user) {
+	// Same as saveUser, but the BCrypt work runs on the hashing pool instead of the request thread
+	public CompletableFuture<Users> saveUserAsync(Users user) {
+		return hashingExecutor.submit(() -> saveUser(user));
+	}
+
+	// Same as verify, but the BCrypt check runs on the hashing pool instead of the request thread
+	public CompletableFuture<TokenResponse> verifyAsync(Users user) {
+		return hashingExecutor.submit(() -> verify(user));
+	}
+
+	// Revokes the presented (already verified) access token until it expires, and the refresh token's session if given
+	public void logout(String token, String refreshToken) {
+		Claims claims = tokenCache.verify(token);
+		revocations.revokeToken(claims.getId(), claims.getExpiration());
+		if (refreshToken != null) {
+			refreshTokens.revokeFamily(refreshToken);
+		}
+	}
+
+	public TokenResponse verify(Users user) {
 		Authentication authentication = authmanager
 				.authenticate(new UsernamePasswordAuthenticationToken(user.getEmail(), user.getPassword()));
-		if(authentication.isAuthenticated())
-			return    jwtService.generateToken(user.getEmail());
-		return "fail";
+		if(!authentication.isAuthenticated())
+			throw new BadCredentialsException("Bad credentials");
+		MyUserPrincipal principal = (MyUserPrincipal) authentication.getPrincipal();
+		return tokens(principal, refreshTokens.issue(principal.getUsername()));
+	}
+
+	/**
+	 * Exchanges a refresh token for a new access token and the next refresh token.
+	 * No password check: one UPDATE, one INSERT and a (usually cached) user lookup.
+	 */
+	public TokenResponse refresh(String refreshToken) {
+		if (refreshToken == null || refreshToken.isBlank()) {
+			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing refresh token");
+		}
+		RefreshTokenService.Rotation rotation = refreshTokens.rotate(refreshToken);
+		MyUserPrincipal principal;
+		try {
+			principal = (MyUserPrincipal) userDetailsService.loadUserByUsername(rotation.email());
+		} catch (UsernameNotFoundException e) {
+			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token");
+		}
+		return tokens(principal, rotation.refreshToken());
+	}
+
+	private TokenResponse tokens(MyUserPrincipal principal, String refreshToken) {
+		return new TokenResponse(jwtService.generateToken(principal), refreshToken, jwtService.getTokenValidityMillis() / 1000);
+	}
+
+	// Every access and refresh token the user holds stops working
+	private void revokeSessions(String email) {
+		revocations.revokeUser(email);
+		refreshTokens.revokeUser(email);
 	}
 
 }
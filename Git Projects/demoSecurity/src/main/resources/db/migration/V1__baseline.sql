@@ -0,0 +1,12 @@
+-- Schema as Hibernate's ddl-auto created it before migrations took over: the original user table, nothing added since.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and skip it.
+
+create table user (
+    email varchar(255) not null,
+    user_name varchar(255),
+    password varchar(255),
+    role varchar(255),
+    address1 varchar(255),
+    address2 varchar(255),
+    primary key (email)
+);
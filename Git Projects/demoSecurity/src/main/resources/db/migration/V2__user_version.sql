@@ -0,0 +1,3 @@
+-- Optimistic locking version of Users; existing rows start at 0.
+
+alter table user add column version bigint default 0 not null;
@@ -0,0 +1,14 @@
+-- RefreshToken: only the SHA-256 of each token is stored, grouped in families (one per login).
+-- expires_at is left unindexed: only the scheduled cleanup filters on it.
+
+create table refresh_token (
+    token_hash varchar(43) not null,
+    email varchar(255),
+    family varchar(36),
+    expires_at bigint not null,
+    used bit not null,
+    primary key (token_hash)
+);
+
+create index idx_refresh_token_email on refresh_token (email);
+create index idx_refresh_token_family on refresh_token (family);
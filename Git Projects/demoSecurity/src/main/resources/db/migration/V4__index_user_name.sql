@@ -0,0 +1,3 @@
+-- UserRepository.findByUsername; findByEmail and the email-ordered pages use the primary key.
+
+create index idx_user_user_name on user (user_name);
@@ -0,0 +1,232 @@
+package com.securitydemo.Perf;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scripted workload against a running instance (normally started with the "perf" profile).
+ *
+ * Every worker repeats: register a new user (with probability load.registerRatio) or pick a seeded one,
+ * log in, then send load.getsPerToken authenticated GETs with the token, alternating
+ * GET /users/{email} and GET /users/page. The session then renews its token load.refreshesPerLogin times
+ * through /users/refresh, with the same GETs after each renewal. At the end it prints throughput and
+ * latency percentiles per endpoint and writes them as JSON to load.out.
+ *
+ * Options (system properties): load.baseUrl, load.threads, load.seconds, load.warmupSeconds,
+ * load.getsPerToken, load.refreshesPerLogin, load.registerRatio, load.seedCount, load.password, load.out.
+ */
+public class LoadDriver {
+
+    private static final String[] ENDPOINTS = { "register", "login", "refresh", "get-user", "get-page" };
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"accessToken\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern REFRESH_TOKEN = Pattern.compile("\"refreshToken\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final String baseUrl = System.getProperty("load.baseUrl", "http://localhost:9091");
+    private final int threads = Integer.getInteger("load.threads", 16);
+    private final int seconds = Integer.getInteger("load.seconds", 30);
+    private final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 5);
+    private final int getsPerToken = Integer.getInteger("load.getsPerToken", 20);
+    private final int refreshesPerLogin = Integer.getInteger("load.refreshesPerLogin", 3);
+    private final double registerRatio = Double.parseDouble(System.getProperty("load.registerRatio", "0.05"));
+    private final int seedCount = Integer.getInteger("load.seedCount", 10000);
+    private final String password = System.getProperty("load.password", "password");
+    private final Path out = Path.of(System.getProperty("load.out", "target/load-result.json"));
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        new LoadDriver().run();
+    }
+
+    // Latencies and status codes seen by one worker, merged at the end (no shared state while running)
+    private static final class Recorder {
+        private final Map<String, long[]> latencies = new LinkedHashMap<>();
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+        private final Map<String, Map<Integer, Integer>> statuses = new LinkedHashMap<>();
+
+        void record(String endpoint, long nanos, int status) {
+            int count = counts.getOrDefault(endpoint, 0);
+            long[] values = latencies.computeIfAbsent(endpoint, e -> new long[1024]);
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                latencies.put(endpoint, values);
+            }
+            values[count] = nanos;
+            counts.put(endpoint, count + 1);
+            statuses.computeIfAbsent(endpoint, e -> new LinkedHashMap<>()).merge(status, 1, Integer::sum);
+        }
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Driving %s with %d threads for %ds (+%ds warm-up), %d GETs per token%n",
+                baseUrl, threads, seconds, warmupSeconds, getsPerToken);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long warmupEnd = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long end = warmupEnd + Duration.ofSeconds(seconds).toNanos();
+        List<Future<Recorder>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> work(warmupEnd, end)));
+        }
+        List<Recorder> recorders = new ArrayList<>();
+        for (Future<Recorder> worker : workers) {
+            recorders.add(worker.get());
+        }
+        pool.shutdown();
+        report(recorders);
+    }
+
+    private Recorder work(long warmupEnd, long end) {
+        Recorder recorder = new Recorder();
+        Random random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            Recorder target = System.nanoTime() < warmupEnd ? new Recorder() : recorder; // Warm-up samples are dropped
+            String email;
+            if (random.nextDouble() < registerRatio) {
+                email = "load-" + UUID.randomUUID() + "@perf.local";
+                String body = "{\"username\":\"load\",\"email\":\"" + email + "\",\"password\":\"" + password + "\",\"role\":\"USER\"}";
+                if (send(target, "register", post("/users/Register", body)) == null) {
+                    continue;
+                }
+            } else {
+                email = "user" + random.nextInt(seedCount) + "@perf.local";
+            }
+
+            String tokens = send(target, "login", post("/users/login",
+                    "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}"));
+
+            for (int round = 0; tokens != null && System.nanoTime() < end; round++) {
+                String token = field(ACCESS_TOKEN, tokens);
+                for (int i = 0; i < getsPerToken && System.nanoTime() < end; i++) {
+                    if (i % 2 == 0) {
+                        send(target, "get-user", get("/users/" + email, token));
+                    } else {
+                        send(target, "get-page", get("/users/page?size=20", token));
+                    }
+                }
+                if (round == refreshesPerLogin) {
+                    break;
+                }
+                tokens = send(target, "refresh", post("/users/refresh",
+                        "{\"refreshToken\":\"" + field(REFRESH_TOKEN, tokens) + "\"}"));
+            }
+        }
+        return recorder;
+    }
+
+    private static String field(Pattern pattern, String json) {
+        Matcher matcher = pattern.matcher(json);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    // Returns the body of a 2xx response, null otherwise; every attempt is recorded with its status (0 = I/O error)
+    private String send(Recorder recorder, String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(endpoint, System.nanoTime() - start, response.statusCode());
+            return response.statusCode() / 100 == 2 ? response.body() : null;
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, 0);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void report(List<Recorder> recorders) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"seconds\": " + seconds + ",\n  \"threads\": " + threads + ",\n  \"endpoints\": {");
+        System.out.printf("%n%-10s %10s %10s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "status codes");
+        boolean first = true;
+        for (String endpoint : ENDPOINTS) {
+            long[] merged = merge(recorders, endpoint);
+            if (merged.length == 0) {
+                continue;
+            }
+            Arrays.sort(merged);
+            Map<Integer, Integer> statuses = new LinkedHashMap<>();
+            for (Recorder recorder : recorders) {
+                recorder.statuses.getOrDefault(endpoint, Map.of()).forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+            }
+            double throughput = merged.length / (double) seconds;
+            System.out.printf("%-10s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n", endpoint, merged.length, throughput,
+                    millis(merged, 0.50), millis(merged, 0.90), millis(merged, 0.99), millis(merged, 0.999),
+                    merged[merged.length - 1] / 1e6, statuses);
+
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append(String.format(java.util.Locale.ROOT,
+                    "    \"%s\": {\"requests\": %d, \"throughput\": %.1f, \"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"p999\": %.3f, \"max\": %.3f}",
+                    endpoint, merged.length, throughput, millis(merged, 0.50), millis(merged, 0.90),
+                    millis(merged, 0.99), millis(merged, 0.999), merged[merged.length - 1] / 1e6));
+        }
+        json.append("\n  }\n}\n");
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        Files.writeString(out, json);
+        System.out.println("Results written to " + out);
+    }
+
+    private static long[] merge(List<Recorder> recorders, String endpoint) {
+        int total = 0;
+        for (Recorder recorder : recorders) {
+            total += recorder.counts.getOrDefault(endpoint, 0);
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (Recorder recorder : recorders) {
+            int count = recorder.counts.getOrDefault(endpoint, 0);
+            if (count > 0) {
+                System.arraycopy(recorder.latencies.get(endpoint), 0, merged, offset, count);
+                offset += count;
+            }
+        }
+        return merged;
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
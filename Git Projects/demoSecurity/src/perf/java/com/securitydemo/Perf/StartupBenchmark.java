@@ -0,0 +1,177 @@
+package com.securitydemo.Perf;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time from launching the application to its first successful authenticated request, per startup variant.
+ *
+ * Each run starts a fresh JVM from the thin jar of the fast-startup build, polls /actuator/health until the
+ * server answers, then registers a user, logs in and sends GET /users/{email} with the token. Register and
+ * login cost one BCrypt hash each in every variant. Variants (on an embedded database, like the CDS training run):
+ * - default: the plain configuration, no AOT, no CDS
+ * - prod: the "prod" profile (lazy init, warm-up, no show-sql, no schema validation)
+ * - prod-aot-cds: the "prod" profile on the AOT bean definitions with the CDS archive
+ *
+ * Build first with ./mvnw -Pfast-startup -DskipTests package, then: ./mvnw -Pperf test-compile exec:java@startup
+ * Options (system properties): startup.variants, startup.runs, startup.port, startup.jar, startup.archive, startup.out.
+ */
+public class StartupBenchmark {
+
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"accessToken\"\\s*:\\s*\"([^\"]+)\"");
+    private static final List<String> EMBEDDED_DATABASE = List.of(
+            "--spring.datasource.url=jdbc:h2:mem:startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--jwt.keys.file=",
+            "--jwt.revocation.file=",
+            "--auth.rate-limit.enabled=false");
+
+    private final List<String> variants = Arrays.asList(System.getProperty("startup.variants", "default,prod,prod-aot-cds").split(","));
+    private final int runs = Integer.getInteger("startup.runs", 5);
+    private final int port = Integer.getInteger("startup.port", 9092);
+    private final String jar = System.getProperty("startup.jar", "target/demo-0.0.1-SNAPSHOT.jar");
+    private final String archive = System.getProperty("startup.archive", "target/app.jsa");
+    private final Path out = Path.of(System.getProperty("startup.out", "target/startup-result.json"));
+    private final String baseUrl = "http://localhost:" + port;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Map<String, long[][]> results = new LinkedHashMap<>(); // variant -> [run] -> {ready ms, first authenticated ms}
+        for (String variant : variants) {
+            long[][] samples = new long[runs][];
+            for (int i = 0; i < runs; i++) {
+                samples[i] = measure(variant.trim(), i);
+                System.out.printf("%-14s run %d: ready %5d ms, first authenticated request %5d ms%n",
+                        variant, i + 1, samples[i][0], samples[i][1]);
+            }
+            results.put(variant.trim(), samples);
+        }
+        report(results);
+    }
+
+    private long[] measure(String variant, int run) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java")); // Same JDK as the one that wrote the archive
+        if ("prod-aot-cds".equals(variant)) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+            command.add("-Xlog:cds=off");
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.add("-jar");
+        command.add(jar);
+        command.add("--server.port=" + port);
+        if (!"default".equals(variant)) {
+            command.add("--spring.profiles.active=prod");
+        }
+        command.addAll(EMBEDDED_DATABASE);
+
+        Path log = Path.of("target", "startup-" + variant + "-" + run + ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = start + TimeUnit.MINUTES.toNanos(2);
+            while (status(get("/actuator/health", null)) != 200) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    throw new IllegalStateException(variant + " did not start, see " + log);
+                }
+                Thread.sleep(10);
+            }
+            long ready = System.nanoTime();
+
+            String email = "startup-" + run + "@perf.local";
+            send(post("/users/Register", "{\"username\":\"startup\",\"email\":\"" + email + "\",\"password\":\"password\",\"role\":\"USER\"}"));
+            String tokens = send(post("/users/login", "{\"email\":\"" + email + "\",\"password\":\"password\"}"));
+            Matcher token = ACCESS_TOKEN.matcher(tokens == null ? "" : tokens);
+            if (!token.find() || send(get("/users/" + email, token.group(1))) == null) {
+                throw new IllegalStateException(variant + ": authenticated request failed, see " + log);
+            }
+            long authenticated = System.nanoTime();
+            return new long[] { TimeUnit.NANOSECONDS.toMillis(ready - start), TimeUnit.NANOSECONDS.toMillis(authenticated - start) };
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private void report(Map<String, long[][]> results) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"runs\": " + runs + ",\n  \"variants\": {");
+        boolean first = true;
+        System.out.printf("%n%-14s %12s %12s %18s %18s%n", "variant", "ready p50", "ready min", "first auth p50", "first auth min");
+        for (Map.Entry<String, long[][]> entry : results.entrySet()) {
+            long[] ready = Arrays.stream(entry.getValue()).mapToLong(sample -> sample[0]).sorted().toArray();
+            long[] authenticated = Arrays.stream(entry.getValue()).mapToLong(sample -> sample[1]).sorted().toArray();
+            System.out.printf("%-14s %9d ms %9d ms %15d ms %15d ms%n", entry.getKey(),
+                    ready[ready.length / 2], ready[0], authenticated[authenticated.length / 2], authenticated[0]);
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append(String.format(java.util.Locale.ROOT,
+                    "    \"%s\": {\"readyMillisP50\": %d, \"readyMillisMin\": %d, \"firstAuthenticatedMillisP50\": %d, \"firstAuthenticatedMillisMin\": %d}",
+                    entry.getKey(), ready[ready.length / 2], ready[0], authenticated[authenticated.length / 2], authenticated[0]));
+        }
+        json.append("\n  }\n}\n");
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        Files.writeString(out, json);
+        System.out.println("Results written to " + out);
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    // Status of the response, 0 while nothing is listening yet
+    private int status(HttpRequest request) throws InterruptedException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Body of a 2xx response, null otherwise
+    private String send(HttpRequest request) throws InterruptedException {
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() / 100 == 2 ? response.body() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -2,8 +2,13 @@ package com.security.demo;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+import com.securitydemo.DemoApplication;
+
+// Runs on the embedded database of the "perf" profile so no MySQL server is needed
+@SpringBootTest(classes = DemoApplication.class, properties = "perf.seed.count=100")
+@ActiveProfiles("perf")
 class DemoApplicationTests {
 
 	@Test
@@ -0,0 +1,107 @@
+package com.securitydemo.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.securitydemo.DemoApplication;
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Entity.Users;
+import com.securitydemo.Service.MyUserDetailsService;
+import com.securitydemo.Service.UserServiceImpl;
+import com.zaxxer.hikari.HikariDataSource;
+
+// The perf profile on two embedded databases: the primary is migrated and seeded as usual, the "replica" is a
+// separate H2 database with its own rows, so every read shows which one it came from. Nothing replicates.
+@SpringBootTest(classes = DemoApplication.class, properties = {
+		"perf.seed.count=10",
+		"spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+		"replica.read-your-writes-seconds=1" })
+@ActiveProfiles("perf")
+class ReadReplicaConfigTest {
+
+	private static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private UserServiceImpl userService;
+	@Autowired
+	private MyUserDetailsService userDetailsService;
+	@Autowired
+	private HikariDataSource primaryDataSource;
+
+	// Runs before the context starts, so the replica pool finds its schema
+	@DynamicPropertySource
+	static void replica(DynamicPropertyRegistry registry) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("create table if not exists user (email varchar(255) not null, user_name varchar(255), password varchar(255),"
+					+ " role varchar(255), address1 varchar(255), address2 varchar(255), version bigint default 0 not null, primary key (email))");
+			statement.execute("create table if not exists refresh_token (token_hash varchar(43) not null, email varchar(255), family varchar(36),"
+					+ " expires_at bigint not null, used bit not null, primary key (token_hash))");
+			statement.execute("merge into user (email, user_name, password, role, version) values"
+					+ " ('user1@perf.local', 'on replica', 'x', 'REPLICA', 0),"
+					+ " ('user2@perf.local', 'on replica', 'x', 'REPLICA', 0),"
+					+ " ('user3@perf.local', 'on replica', 'x', 'REPLICA', 0)");
+		}
+		registry.add("replica.urls", () -> REPLICA_URL);
+	}
+
+	private JdbcTemplate primary() {
+		return new JdbcTemplate(primaryDataSource);
+	}
+
+	private JdbcTemplate replica() {
+		return new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+	}
+
+	private String username(UserServiceImpl service, String email) {
+		return service.getUserByEmail(email, null).map(UserResponse::username).orElse(null);
+	}
+
+	@Test
+	void readOnlyReadsAndThePrincipalLookupUseTheReplica() {
+		assertEquals("on replica", username(userService, "user1@perf.local"));
+		assertEquals("user1", primary().queryForObject("select user_name from user where email = 'user1@perf.local'", String.class));
+
+		userDetailsService.evict("user1@perf.local");
+		assertEquals("REPLICA", userDetailsService.loadUserByUsername("user1@perf.local").getAuthorities().iterator().next().getAuthority());
+	}
+
+	@Test
+	void writesGoToThePrimary() {
+		userService.saveUser(new Users("created", "created@test.local", "secret", "USER", null, null));
+		Users update = new Users("updated", "user2@perf.local", null, "USER", null, null);
+		userService.updateUser(update, null);
+		primary().update("insert into user (user_name, email, password, role, version) values ('lagging', 'lagging@test.local', 'x', 'USER', 0)");
+		userService.deleteUserByEmail("lagging@test.local"); // Not on the replica: the existence check has to read the primary
+
+		assertEquals(1, primary().queryForObject("select count(*) from user where email = 'created@test.local'", Integer.class));
+		assertEquals("updated", primary().queryForObject("select user_name from user where email = 'user2@perf.local'", String.class));
+		assertEquals(0, primary().queryForObject("select count(*) from user where email = 'lagging@test.local'", Integer.class));
+		assertEquals(0, replica().queryForObject("select count(*) from user where email = 'created@test.local'", Integer.class));
+		assertEquals("on replica", replica().queryForObject("select user_name from user where email = 'user2@perf.local'", String.class));
+	}
+
+	@Test
+	void recentlyWrittenUsersAreReadFromThePrimaryUntilTheWindowCloses() throws InterruptedException {
+		userService.updateUser(new Users("just written", "user3@perf.local", null, "USER", null, null), null);
+
+		assertEquals("just written", username(userService, "user3@perf.local"));
+		assertEquals("on replica", username(userService, "user1@perf.local")); // Other users still come from the replica
+
+		Thread.sleep(1500); // replica.read-your-writes-seconds=1
+		assertEquals("on replica", username(userService, "user3@perf.local"));
+	}
+}
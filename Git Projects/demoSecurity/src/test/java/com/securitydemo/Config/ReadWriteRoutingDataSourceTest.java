@@ -0,0 +1,58 @@
+package com.securitydemo.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.securitydemo.Service.ReadYourWrites;
+
+class ReadWriteRoutingDataSourceTest {
+
+	private final DataSource primary = new DriverManagerDataSource();
+	private final DataSource replica0 = new DriverManagerDataSource();
+	private final DataSource replica1 = new DriverManagerDataSource();
+	private final ReadYourWrites readYourWrites = new ReadYourWrites(5);
+	private final ReadWriteRoutingDataSource routing =
+			new ReadWriteRoutingDataSource(primary, List.of(replica0, replica1), readYourWrites);
+
+	@AfterEach
+	void reset() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readOnlyTransactionsAreSpreadOverReplicas() {
+		assertEquals("primary", routing.determineCurrentLookupKey()); // No read-only transaction
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertEquals("replica-0", routing.determineCurrentLookupKey());
+		assertEquals("replica-1", routing.determineCurrentLookupKey());
+		assertEquals("replica-0", routing.determineCurrentLookupKey());
+	}
+
+	@Test
+	void recentWritesAreReadFromPrimary() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		readYourWrites.written("a@test.local");
+
+		assertEquals("primary", readYourWrites.readFor("a@test.local", routing::determineCurrentLookupKey));
+		assertEquals("replica-0", readYourWrites.readFor("b@test.local", routing::determineCurrentLookupKey));
+
+		// The writer's own reads, whoever they are about
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken("admin@test.local", null, List.of()));
+		readYourWrites.written("c@test.local");
+		assertEquals("primary", readYourWrites.readFor("b@test.local", routing::determineCurrentLookupKey));
+		assertEquals("primary", routing.determineCurrentLookupKey());
+	}
+}
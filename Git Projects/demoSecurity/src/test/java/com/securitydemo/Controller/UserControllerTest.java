@@ -0,0 +1,289 @@
+package com.securitydemo.Controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securitydemo.DemoApplication;
+import com.securitydemo.Dto.TokenResponse;
+import com.securitydemo.Service.MyUserDetailsService;
+
+// Same configuration as DemoApplicationTests, so the application context is shared.
+// Requests go through the security filter chain, including the async dispatches that finish streamed and hashed responses.
+@SpringBootTest(classes = DemoApplication.class, properties = "perf.seed.count=100")
+@ActiveProfiles("perf")
+class UserControllerTest {
+
+	@Autowired
+	private WebApplicationContext context;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private DataSource dataSource;
+	@Autowired
+	private MyUserDetailsService userDetailsService;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+	}
+
+	private ResultActions refresh(String refreshToken) throws Exception {
+		return mockMvc.perform(post("/users/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"refreshToken\":\"" + refreshToken + "\"}"));
+	}
+
+	private ResultActions getUser(String email, String accessToken) throws Exception {
+		return mockMvc.perform(get("/users/" + email).header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken));
+	}
+
+	private TokenResponse login(String email) throws Exception {
+		MvcResult started = mockMvc.perform(post("/users/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + email + "\",\"password\":\"password\"}"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readValue(body, TokenResponse.class);
+	}
+
+	@Test
+	void registrationIgnoresARoleSentByTheClient() throws Exception {
+		MvcResult started = mockMvc.perform(post("/users/Register").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"mallory@test.local\",\"password\":\"password\",\"role\":\"ADMIN\"}"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.role").value("USER"));
+
+		login("mallory@test.local");
+		// The principal is what tokens are built from, including the roles claim of stateless tokens
+		assertEquals(List.of("USER"), userDetailsService.loadUserByUsername("mallory@test.local").getAuthorities().stream()
+				.map(authority -> authority.getAuthority()).toList());
+	}
+
+	@Test
+	void reRegisteredUserDoesNotMatchTheOldETag() throws Exception {
+		String bearer = "Bearer " + login("user2@perf.local").accessToken();
+		register("phoenix@test.local");
+		String oldTag = mockMvc.perform(get("/users/phoenix@test.local").header(HttpHeaders.AUTHORIZATION, bearer))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(delete("/users/phoenix@test.local").header(HttpHeaders.AUTHORIZATION, bearer))
+				.andExpect(status().isNoContent());
+		register("phoenix@test.local");
+
+		// Both rows were never updated; the new one must still not be taken for the old one
+		mockMvc.perform(get("/users/phoenix@test.local").header(HttpHeaders.AUTHORIZATION, bearer)
+				.header(HttpHeaders.IF_NONE_MATCH, oldTag))
+				.andExpect(status().isOk());
+	}
+
+	private void register(String email) throws Exception {
+		MvcResult started = mockMvc.perform(post("/users/Register").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + email + "\",\"password\":\"password\"}"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(started)).andExpect(status().isCreated());
+	}
+
+	@Test
+	void exportStreamsAllUsersToAnAuthenticatedClient() throws Exception {
+		String token = login("user1@perf.local").accessToken();
+
+		MvcResult started = mockMvc.perform(get("/users/export").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(started)) // The ASYNC dispatch that completes the stream
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertEquals(100, body.lines().filter(line -> line.contains("@perf.local")).count());
+	}
+
+	@Test
+	void patchChangesOnlyTheSentFieldsAndAlwaysReturnsTheNewVersion() throws Exception {
+		String bearer = "Bearer " + login("user2@perf.local").accessToken();
+
+		mockMvc.perform(patch("/users/user3@perf.local").header(HttpHeaders.AUTHORIZATION, bearer)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"address1\":\"1 Elm Way\"}"))
+				.andExpect(status().isNoContent())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\"")); // No If-Match sent, still a validator for the next one
+
+		mockMvc.perform(get("/users/user3@perf.local").header(HttpHeaders.AUTHORIZATION, bearer))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+				.andExpect(jsonPath("$.address1").value("1 Elm Way"))
+				.andExpect(jsonPath("$.address2").value("Apt 3"))
+				.andExpect(jsonPath("$.username").value("user3"));
+	}
+
+	@Test
+	void patchWithAnOutdatedIfMatchIsRejectedWith412() throws Exception {
+		String bearer = "Bearer " + login("user2@perf.local").accessToken();
+
+		mockMvc.perform(patch("/users/user4@perf.local").header(HttpHeaders.AUTHORIZATION, bearer)
+				.header(HttpHeaders.IF_MATCH, "\"0\"")
+				.contentType(MediaType.APPLICATION_JSON).content("{\"username\":\"first\"}"))
+				.andExpect(status().isNoContent())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+		mockMvc.perform(patch("/users/user4@perf.local").header(HttpHeaders.AUTHORIZATION, bearer)
+				.header(HttpHeaders.IF_MATCH, "\"0\"")
+				.contentType(MediaType.APPLICATION_JSON).content("{\"username\":\"second\"}"))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(get("/users/user4@perf.local").header(HttpHeaders.AUTHORIZATION, bearer))
+				.andExpect(jsonPath("$.username").value("first"));
+	}
+
+	@Test
+	void patchOfAnUnknownUserIs404() throws Exception {
+		String bearer = "Bearer " + login("user2@perf.local").accessToken();
+
+		mockMvc.perform(patch("/users/nobody@perf.local").header(HttpHeaders.AUTHORIZATION, bearer)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"username\":\"nobody\"}"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void patchOfTheRoleEndsTheUsersSessions() throws Exception {
+		TokenResponse patched = login("user5@perf.local");
+		String bearer = "Bearer " + login("user2@perf.local").accessToken();
+
+		mockMvc.perform(patch("/users/user5@perf.local").header(HttpHeaders.AUTHORIZATION, bearer)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"role\":\"USER,ADMIN\"}"))
+				.andExpect(status().isNoContent());
+
+		getUser("user5@perf.local", patched.accessToken()).andExpect(status().isForbidden()); // Issued with the old role
+		refresh(patched.refreshToken()).andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void putWithAnOutdatedIfMatchIsRejectedWith412() throws Exception {
+		String token = login("user2@perf.local").accessToken();
+		String bearer = "Bearer " + token;
+		String body = "{\"email\":\"user9@perf.local\",\"username\":\"user9\",\"role\":\"USER\",\"address1\":\"9 Oak Road\"}";
+
+		mockMvc.perform(put("/users/").header(HttpHeaders.AUTHORIZATION, bearer).header(HttpHeaders.IF_MATCH, "\"0\"")
+				.contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+		// A second client that also read version 0 must not overwrite the first one's change
+		mockMvc.perform(put("/users/").header(HttpHeaders.AUTHORIZATION, bearer).header(HttpHeaders.IF_MATCH, "\"0\"")
+				.contentType(MediaType.APPLICATION_JSON).content(body.replace("9 Oak Road", "9 Elm Road")))
+				.andExpect(status().isPreconditionFailed());
+
+		getUser("user9@perf.local", token).andExpect(jsonPath("$.address1").value("9 Oak Road"));
+	}
+
+	@Test
+	void putThatLosesARaceWithAnotherWriteIs409() throws Exception {
+		String bearer = "Bearer " + login("user2@perf.local").accessToken();
+		try (Connection other = dataSource.getConnection()) {
+			// Another writer bumps the version and holds the row lock until it commits
+			other.setAutoCommit(false);
+			try (PreparedStatement update = other.prepareStatement("update user set version = version + 1 where email = ?")) {
+				update.setString(1, "user6@perf.local");
+				update.executeUpdate();
+			}
+			// The PUT reads the committed version 0, then its version-checked UPDATE waits for the lock
+			CompletableFuture<Integer> put = CompletableFuture.supplyAsync(() -> {
+				try {
+					return mockMvc.perform(put("/users/").header(HttpHeaders.AUTHORIZATION, bearer)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{\"email\":\"user6@perf.local\",\"username\":\"put\",\"role\":\"USER\"}"))
+							.andReturn().getResponse().getStatus();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			awaitBlockedSession(other);
+			other.commit();
+
+			assertEquals(409, put.get());
+		}
+	}
+
+	@Test
+	void refreshRotatesTheTokenAndReuseEndsTheSession() throws Exception {
+		TokenResponse first = login("user7@perf.local");
+
+		String body = refresh(first.refreshToken()).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		TokenResponse second = objectMapper.readValue(body, TokenResponse.class);
+		assertNotEquals(first.refreshToken(), second.refreshToken());
+		getUser("user7@perf.local", second.accessToken()).andExpect(status().isOk());
+
+		// The used token shows up again, as if stolen: the whole family goes and so do the user's access tokens
+		refresh(first.refreshToken()).andExpect(status().isUnauthorized());
+		refresh(second.refreshToken()).andExpect(status().isUnauthorized());
+		getUser("user7@perf.local", second.accessToken()).andExpect(status().isForbidden());
+	}
+
+	@Test
+	void logoutEndsOnlyItsOwnSession() throws Exception {
+		TokenResponse phone = login("user8@perf.local");
+		TokenResponse laptop = login("user8@perf.local");
+
+		mockMvc.perform(post("/users/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + phone.accessToken())
+				.contentType(MediaType.APPLICATION_JSON).content("{\"refreshToken\":\"" + phone.refreshToken() + "\"}"))
+				.andExpect(status().isNoContent());
+
+		getUser("user8@perf.local", phone.accessToken()).andExpect(status().isForbidden());
+		refresh(phone.refreshToken()).andExpect(status().isUnauthorized());
+		getUser("user8@perf.local", laptop.accessToken()).andExpect(status().isOk());
+		refresh(laptop.refreshToken()).andExpect(status().isOk());
+	}
+
+	// Waits until some session waits for a lock held by the given connection's session
+	private static void awaitBlockedSession(Connection holder) throws Exception {
+		try (PreparedStatement blocked = holder.prepareStatement(
+				"select count(*) from information_schema.sessions where blocker_id = session_id()")) {
+			for (int attempt = 0; attempt < 500; attempt++) {
+				try (ResultSet rows = blocked.executeQuery()) {
+					rows.next();
+					if (rows.getInt(1) > 0) {
+						return;
+					}
+				}
+				Thread.sleep(10);
+			}
+		}
+		fail("The PUT never waited for the row lock");
+	}
+}
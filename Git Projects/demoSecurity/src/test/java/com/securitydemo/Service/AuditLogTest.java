@@ -0,0 +1,81 @@
+package com.securitydemo.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.securitydemo.Dto.AuditEvent;
+import com.securitydemo.Dto.AuditEvent.Type;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AuditLogTest {
+
+	@TempDir
+	Path dir;
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private List<AuditEvent> read(String user, long from, long to) throws Exception {
+		try (Stream<AuditEvent> events = AuditLogReader.read(dir, user, from, to)) {
+			return events.toList();
+		}
+	}
+
+	@Test
+	void eventsFromManyThreadsAreWrittenAndFoundByUserAndTime() throws Exception {
+		// max-file-minutes 0: every batch goes to a new file, so the reader has to pick several
+		AuditLog audit = new AuditLog(registry, dir.toString(), 64, AuditLog.WhenFull.BLOCK, 10_000, 64, 0, 0);
+		long start = System.currentTimeMillis();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			String email = "user" + t + "@example.com";
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 500; i++) {
+					audit.login(email, "10.0.0.1", i % 2 == 0 ? null : new RuntimeException());
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		audit.destroy(); // Writes what is still buffered
+		long end = System.currentTimeMillis() + 1;
+
+		assertEquals(2000, registry.counter("audit.events.written").count());
+		assertEquals(0, registry.counter("audit.events.dropped").count());
+		try (Stream<Path> files = Files.list(dir)) {
+			assertTrue(files.count() > 1);
+		}
+		List<AuditEvent> user2 = read("USER2@example.com", start, end);
+		assertEquals(500, user2.size());
+		assertEquals(250, user2.stream().filter(event -> event.type() == Type.LOGIN_FAILED).count());
+		assertEquals("RuntimeException", user2.get(1).detail());
+		assertEquals(2000, read(null, start, end).size());
+		assertEquals(0, read(null, end, Long.MAX_VALUE).size());
+	}
+
+	@Test
+	void eventsThatCannotBeWrittenAreCountedAsDropped() throws Exception {
+		Path notADirectory = Files.createFile(dir.resolve("file"));
+		AuditLog audit = new AuditLog(registry, notADirectory.toString(), 64, AuditLog.WhenFull.BLOCK, 10_000, 64, 60, 0);
+		for (int i = 0; i < 10; i++) {
+			audit.userChanged(Type.USER_DELETED, "user" + i + "@example.com", null);
+		}
+		audit.destroy();
+
+		assertEquals(10, registry.counter("audit.events.dropped").count());
+		assertEquals(0, registry.counter("audit.events.written").count());
+	}
+}
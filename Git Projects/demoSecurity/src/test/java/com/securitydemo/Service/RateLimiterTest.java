@@ -0,0 +1,43 @@
+package com.securitydemo.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimiterTest {
+
+	private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final RateLimiter limiter = new RateLimiter("ip", 3, 60, 100, Duration.ofMinutes(10), registry, clock::get);
+
+	@Test
+	void burstThenRefillOneTokenPerInterval() {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+		}
+		long wait = limiter.tryAcquire("10.0.0.1");
+		assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1)); // 60 per minute: one token per second
+		assertEquals(0, limiter.tryAcquire("10.0.0.2")); // Other keys have their own bucket
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+		assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+	}
+
+	@Test
+	void decisionsAreCounted() {
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire("10.0.0.1");
+		}
+		assertEquals(3, registry.get("auth.ratelimit").tag("decision", "allowed").counter().count());
+		assertEquals(2, registry.get("auth.ratelimit").tag("decision", "rejected").counter().count());
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.securitydemo.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.PublicKey;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+
+class SigningKeyRingTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void tokensSurviveRestart() {
+		String file = dir.resolve("keys.properties").toString();
+		String token = new JWTService(new SigningKeyRing(file, 24, 24)).generateToken("a@example.com");
+
+		// A second ring reading the same file stands in for a restart or another instance
+		JWTService restarted = new JWTService(new SigningKeyRing(file, 24, 24));
+
+		assertEquals("a@example.com", restarted.parseClaims(token).getSubject());
+	}
+
+	@Test
+	void keyFileIsOnlyReadableByItsOwner() throws Exception {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		Path file = dir.resolve("keys.properties");
+		Path leftover = dir.resolve("keys.properties.tmp"); // From a write that was interrupted
+		Files.createFile(leftover, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-r--r--")));
+
+		new SigningKeyRing(file.toString(), 24, 24);
+
+		assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+	}
+
+	@Test
+	void rotationKeepsOldKeysForVerification() {
+		SigningKeyRing keyRing = new SigningKeyRing(dir.resolve("keys.properties").toString(), 24, 24);
+		JWTService jwtService = new JWTService(keyRing);
+		String before = jwtService.generateToken("a@example.com");
+		String oldKid = keyRing.activeKid();
+
+		keyRing.rotate();
+
+		assertNotEquals(oldKid, keyRing.activeKid());
+		assertEquals(2, keyRing.size());
+		assertEquals("a@example.com", jwtService.parseClaims(before).getSubject());
+		assertEquals("a@example.com", jwtService.parseClaims(jwtService.generateToken("a@example.com")).getSubject());
+	}
+
+	@Test
+	void asymmetricTokensVerifyWithThePublishedKeysOnly() {
+		String file = dir.resolve("keys.properties").toString();
+		String token = new JWTService(new SigningKeyRing(file, 24, 24, "ES256")).generateToken("a@example.com");
+
+		// Another service: only the JWK set, no access to the key file
+		SigningKeyRing restarted = new SigningKeyRing(file, 24, 24, "ES256");
+		JwkSet jwks = Jwks.setParser().build().parse(restarted.jwks().json());
+		PublicJwk<?> jwk = (PublicJwk<?>) jwks.getKeys().iterator().next();
+		assertEquals(restarted.activeKid(), jwk.getId());
+		assertFalse(restarted.jwks().json().contains("\"d\"")); // No private part
+
+		String subject = Jwts.parser().verifyWith((PublicKey) jwk.toKey()).build().parseSignedClaims(token).getPayload().getSubject();
+		assertEquals("a@example.com", subject);
+	}
+}
@@ -0,0 +1,65 @@
+package com.securitydemo.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.jsonwebtoken.Claims;
+
+class TokenRevocationListTest {
+
+	@TempDir
+	Path dir;
+
+	private final JWTService jwtService = new JWTService();
+
+	@Test
+	void revokedTokenSurvivesRestart() {
+		String file = dir.resolve("revocations.log").toString();
+		Claims revoked = jwtService.parseClaims(jwtService.generateToken("a@example.com"));
+		Claims other = jwtService.parseClaims(jwtService.generateToken("a@example.com"));
+		new TokenRevocationList(file, 1000, jwtService).revokeToken(revoked.getId(), revoked.getExpiration());
+
+		// A second list reading the same file stands in for a restart
+		TokenRevocationList restarted = new TokenRevocationList(file, 1000, jwtService);
+
+		assertTrue(restarted.isRevoked(revoked));
+		assertFalse(restarted.isRevoked(other));
+	}
+
+	@Test
+	void revokedUserLosesEarlierTokens() {
+		TokenRevocationList revocations = new TokenRevocationList("", 1000, jwtService);
+		Claims alice = jwtService.parseClaims(jwtService.generateToken("a@example.com"));
+		Claims bob = jwtService.parseClaims(jwtService.generateToken("b@example.com"));
+
+		revocations.revokeUser("a@example.com");
+
+		assertTrue(revocations.isRevoked(alice));
+		assertFalse(revocations.isRevoked(bob));
+	}
+
+	@Test
+	void loginInTheSameSecondAsARevocationIsKept() {
+		TokenRevocationList revocations = new TokenRevocationList("", 1000, jwtService);
+		while (System.currentTimeMillis() % 1000 > 500) {
+			Thread.onSpinWait(); // Leave room in this second for the login below
+		}
+		long before = System.currentTimeMillis();
+		revocations.revokeUser("a@example.com");
+		long revokedBy = System.currentTimeMillis();
+		while (System.currentTimeMillis() == revokedBy) {
+			Thread.onSpinWait();
+		}
+		Claims loggedIn = jwtService.parseClaims(jwtService.generateToken("a@example.com"));
+
+		assertEquals(before / 1000, loggedIn.getIssuedAt().getTime() / 1000);
+		assertFalse(revocations.isRevoked(loggedIn));
+	}
+
+}
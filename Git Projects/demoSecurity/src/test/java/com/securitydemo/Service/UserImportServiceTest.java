@@ -0,0 +1,90 @@
+package com.securitydemo.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.securitydemo.DemoApplication;
+import com.securitydemo.Dto.ImportSummary;
+import com.securitydemo.Repository.UserRepository;
+
+// Same configuration as DemoApplicationTests, so the application context is shared
+@SpringBootTest(classes = DemoApplication.class, properties = "perf.seed.count=100")
+@ActiveProfiles("perf")
+class UserImportServiceTest {
+
+	@Autowired
+	private UserImportService importService;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private PasswordEncoder encoder;
+
+	@Test
+	void badRowsAreReportedAndTheOthersImported() throws Exception {
+		String csv = String.join("\n",
+				"email,password,username,address1",
+				"import1@test.local,secret1,one,\"1 Main Street, Springfield\"",
+				"user0@perf.local,secret,seeded,", // Already exists
+				"import2@test.local,,two,", // No password
+				"import1@test.local,secret1,again,", // Repeated in the file
+				"import3@test.local,secret3,\"unterminated,",
+				"import4@test.local,secret4,four,");
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+		ImportSummary summary = importService.importUsers(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.CSV, report);
+
+		assertEquals(6, summary.rows());
+		assertEquals(2, summary.imported());
+		assertEquals(4, summary.failed());
+		List<String> lines = report.toString(StandardCharsets.UTF_8).lines().toList();
+		assertEquals(5, lines.size()); // One per rejected row, then the summary
+		assertTrue(lines.get(0).contains("\"line\":4"), lines.get(0)); // Validation errors come first, while reading
+		assertTrue(lines.get(1).contains("\"line\":6"), lines.get(1));
+		assertTrue(lines.stream().anyMatch(line -> line.contains("\"line\":3")));
+		assertTrue(lines.stream().anyMatch(line -> line.contains("\"line\":5")));
+
+		assertEquals("1 Main Street, Springfield", userRepository.findByEmail("import1@test.local").getAddress1());
+		assertTrue(encoder.matches("secret4", userRepository.findByEmail("import4@test.local").getPassword()));
+	}
+
+	@Test
+	void onlyAdminsCanImportUsersWithARole() throws Exception {
+		String csv = String.join("\n",
+				"email,password,role",
+				"role1@test.local,secret,ADMIN",
+				"role2@test.local,secret,USER");
+
+		ImportSummary asUser = importService.importUsers(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.CSV, new ByteArrayOutputStream());
+		assertEquals(1, asUser.imported());
+		assertFalse(userRepository.existsById("role1@test.local"));
+
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken("admin@test.local", null, List.of(new SimpleGrantedAuthority("ADMIN"))));
+		try {
+			String admin = csv.replace("role2@test.local,secret,USER", "");
+			ImportSummary asAdmin = importService.importUsers(
+					new ByteArrayInputStream(admin.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.CSV, new ByteArrayOutputStream());
+			assertEquals(1, asAdmin.imported());
+			assertEquals("ADMIN", userRepository.findByEmail("role1@test.local").getRole());
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+}
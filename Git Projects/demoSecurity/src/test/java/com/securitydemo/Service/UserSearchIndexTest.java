@@ -0,0 +1,81 @@
+package com.securitydemo.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.securitydemo.Dto.UserPatch;
+import com.securitydemo.Dto.UserResponse;
+import com.securitydemo.Dto.UserSearchResult;
+
+class UserSearchIndexTest {
+
+	private static UserResponse user(String username, String email, String address1) {
+		return new UserResponse(username, email, "USER", address1, null, 0L);
+	}
+
+	private static List<String> emails(UserSearchResult result) {
+		return result.users().stream().map(UserResponse::email).toList();
+	}
+
+	@Test
+	void matchesAreRankedAndKeptInSync() {
+		UserSearchIndex index = new UserSearchIndex(null, true, 100, 20000);
+		index.load(Stream.of(
+				user("annabel", "a.lee@example.com", "12 Mill Lane"),
+				user("bob", "bob@example.com", "3 Hannah Street"),
+				user("Anna", "anna@example.com", "7 Oak Road"),
+				user("joanna", "jo@example.com", "1 Anna Way")));
+
+		// Whole username, then username prefix, then address word prefix, then substrings
+		assertEquals(List.of("anna@example.com", "a.lee@example.com", "jo@example.com", "bob@example.com"),
+				emails(index.search("ANNA", 10)));
+		assertEquals(List.of("anna@example.com", "a.lee@example.com"), emails(index.search("anna", 2)));
+		// Two characters only match at the start of a word
+		assertEquals(List.of("anna@example.com", "a.lee@example.com", "jo@example.com"), emails(index.search("an", 10)));
+		assertEquals(List.of(), emails(index.search("nn", 10)));
+
+		index.put(user("bob", "bob@example.com", "3 High Street"));
+		index.patch("jo@example.com", new UserPatch(null, null, null, "1 Elm Way", null), 1L);
+		index.remove("a.lee@example.com");
+		index.put(user("hannah", "h@example.com", null));
+		assertEquals(List.of("anna@example.com", "h@example.com", "jo@example.com"), emails(index.search("anna", 10)));
+		assertEquals("joanna", index.search("elm way", 10).users().get(0).username());
+	}
+
+	@Test
+	void broadQueriesAreTruncated() {
+		UserSearchIndex index = new UserSearchIndex(null, true, 100, 50);
+		index.load(Stream.iterate(0, i -> i < 200, i -> i + 1).map(i -> user("user" + i, "user" + i + "@perf.local", null)));
+
+		UserSearchResult broad = index.search("perf", 10);
+		assertEquals(10, broad.users().size());
+		assertTrue(broad.truncated());
+
+		UserSearchResult narrow = index.search("user17", 10);
+		assertEquals("user17@perf.local", narrow.users().get(0).email()); // Whole username first
+		assertEquals(11, emails(index.search("user17", 100)).size()); // user17 and user170..179
+		assertFalse(narrow.truncated());
+	}
+
+	@Test
+	void compactionKeepsLiveUsersAndLaterChanges() {
+		UserSearchIndex index = new UserSearchIndex(null, true, 1000, 20000);
+		index.load(Stream.iterate(0, i -> i < 2000, i -> i + 1).map(i -> user("user" + i, "user" + i + "@perf.local", null)));
+		for (int i = 0; i < 1500; i++) {
+			index.remove("user" + i + "@perf.local"); // Enough dead slots to compact
+		}
+
+		index.compact();
+		index.put(user("user1", "user1@perf.local", "9 Elm Way")); // Lands on the compacted index
+
+		assertEquals(501, index.search("perf", 1000).users().size());
+		assertEquals(List.of("user1@perf.local"), emails(index.search("elm", 10)));
+		assertEquals(List.of("user1999@perf.local"), emails(index.search("user1999", 10)));
+	}
+}
@@ -0,0 +1,35 @@
+package com.securitydemo.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.JwtException;
+
+class VerifiedTokenCacheTest {
+
+	private final JWTService jwtService = new JWTService();
+	private final VerifiedTokenCache tokenCache = new VerifiedTokenCache(jwtService, 100, 300);
+
+	@Test
+	void repeatedTokenIsVerifiedOnce() {
+		String token = jwtService.generateToken("a@example.com");
+
+		assertEquals("a@example.com", tokenCache.verify(token).getSubject());
+		assertEquals("a@example.com", tokenCache.verify(token).getSubject());
+
+		assertEquals(1, tokenCache.stats().missCount());
+		assertEquals(1, tokenCache.stats().hitCount());
+	}
+
+	@Test
+	void tamperedTokenIsRejectedAndNotCached() {
+		String token = jwtService.generateToken("a@example.com");
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+		assertThrows(JwtException.class, () -> tokenCache.verify(tampered));
+		assertEquals(0, tokenCache.size());
+	}
+
+}